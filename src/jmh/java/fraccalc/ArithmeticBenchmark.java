@@ -0,0 +1,188 @@
+package fraccalc;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the String returning simplify, multiplication and division
+ * methods, and the Fraction and MutableFraction arithmetic under them,
+ * next to the same sums done a column at a time by FractionArrays. The
+ * sort benchmarks put a copy of the fractions in order, as objects with
+ * Arrays.sort and as a column with FractionArrays.sort. The pipeline
+ * benchmarks chain arithmetic exactly and with the denominator limited.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArithmeticBenchmark {
+
+   private static final Fraction HALF = Fraction.of(1, 2);
+
+   @Param({ "small", "large", "adversarial" })
+   public String input;
+
+   private int[] pairs;
+   private Fraction[] fractions;
+   private long[] leftNums;
+   private long[] leftDens;
+   private long[] rightNums;
+   private long[] rightDens;
+   private long[] outNums;
+   private long[] outDens;
+
+   @Setup
+   public void setUp() {
+      pairs = BenchmarkData.pairs(input);
+      fractions = new Fraction[BenchmarkData.SIZE];
+      for (int i = 0; i < fractions.length; i++) {
+         fractions[i] = Fraction.of(pairs[i * 2], pairs[i * 2 + 1]);
+      }
+      // the same pairs as fractionAdd, laid out as columns
+      int n = fractions.length - 1;
+      leftNums = new long[n];
+      leftDens = new long[n];
+      rightNums = new long[n];
+      rightDens = new long[n];
+      for (int i = 0; i < n; i++) {
+         leftNums[i] = fractions[i].numerator();
+         leftDens[i] = fractions[i].denominator();
+         rightNums[i] = fractions[i + 1].numerator();
+         rightDens[i] = fractions[i + 1].denominator();
+      }
+      outNums = new long[n];
+      outDens = new long[n];
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE)
+   public void simplify(Blackhole blackhole) {
+      for (int i = 0; i < pairs.length; i += 2) {
+         blackhole.consume(FracCalc.simplify(pairs[i], pairs[i + 1]));
+      }
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE / 2)
+   public void multiplication(Blackhole blackhole) {
+      for (int i = 0; i < pairs.length; i += 4) {
+         blackhole.consume(FracCalc.multiplication(pairs[i], pairs[i + 2], pairs[i + 1], pairs[i + 3]));
+      }
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE / 2)
+   public void division(Blackhole blackhole) {
+      for (int i = 0; i < pairs.length; i += 4) {
+         blackhole.consume(FracCalc.division(pairs[i], pairs[i + 2], pairs[i + 1], pairs[i + 3]));
+      }
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE - 1)
+   public void fractionMultiply(Blackhole blackhole) {
+      for (int i = 1; i < fractions.length; i++) {
+         blackhole.consume(fractions[i - 1].multiply(fractions[i]));
+      }
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE - 1)
+   public void fractionAdd(Blackhole blackhole) {
+      for (int i = 1; i < fractions.length; i++) {
+         blackhole.consume(fractions[i - 1].add(fractions[i]));
+      }
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE)
+   public MutableFraction accumulatorAdd() {
+      MutableFraction sum = new MutableFraction();
+      for (Fraction fraction : fractions) {
+         sum.add(fraction);
+      }
+      return sum;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE)
+   public Fraction collectorSum() {
+      return Arrays.stream(fractions).collect(FractionCollectors.summing());
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE - 1)
+   public int columnAdd() {
+      return FractionArrays.add(leftNums, leftDens, rightNums, rightDens, outNums, outDens);
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE - 1)
+   public int columnMultiply() {
+      return FractionArrays.multiply(leftNums, leftDens, rightNums, rightDens, outNums, outDens);
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE - 1)
+   public int fractionCompare() {
+      int less = 0;
+      for (int i = 1; i < fractions.length; i++) {
+         if (fractions[i - 1].compareTo(fractions[i]) < 0) {
+            less++;
+         }
+      }
+      return less;
+   }
+
+   // a long pipeline, halfway from x to each fraction in turn, where the
+   // exact denominator keeps getting bigger
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE)
+   public Fraction pipelineExact() {
+      Fraction x = Fraction.ONE;
+      for (Fraction fraction : fractions) {
+         x = x.add(fraction).multiply(HALF);
+      }
+      return x;
+   }
+
+   // the same pipeline with the denominator held to a million
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE)
+   public Fraction pipelineLimited() {
+      Fraction x = Fraction.ONE;
+      for (Fraction fraction : fractions) {
+         x = x.add(fraction).multiply(HALF).limitDenominator(1_000_000);
+      }
+      return x;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE)
+   public double toDouble() {
+      double sum = 0;
+      for (Fraction fraction : fractions) {
+         sum += fraction.doubleValue();
+      }
+      return sum;
+   }
+
+   @Benchmark
+   public Fraction[] fractionSort() {
+      Fraction[] sorted = fractions.clone();
+      Arrays.sort(sorted);
+      return sorted;
+   }
+
+   @Benchmark
+   public long[] columnSort() {
+      long[] nums = leftNums.clone();
+      long[] dens = leftDens.clone();
+      FractionArrays.sort(nums, dens);
+      return dens;
+   }
+}
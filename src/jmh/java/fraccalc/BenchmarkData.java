@@ -0,0 +1,106 @@
+package fraccalc;
+
+import java.util.Random;
+
+/**
+ * Operands shared by the benchmarks. Each kind of input stresses something
+ * different:
+ * <ul>
+ * <li>small: numbers up to 64, like most typed input</li>
+ * <li>large: numbers close to the int limit, and so close to each other</li>
+ * <li>random: any positive ints</li>
+ * <li>adversarial: consecutive Fibonacci numbers, which make Euclid's
+ * algorithm take the most steps</li>
+ * </ul>
+ */
+final class BenchmarkData {
+
+   static final int SIZE = 1024;
+
+   private BenchmarkData() {
+   }
+
+   /**
+    * @return SIZE pairs of positive ints, first values at even indexes
+    */
+   static int[] pairs(String kind) {
+      Random random = new Random(42);
+      int[] values = new int[SIZE * 2];
+      int[] fibonacci = fibonacci();
+      for (int i = 0; i < values.length; i += 2) {
+         switch (kind) {
+            case "small":
+               values[i] = random.nextInt(64) + 1;
+               values[i + 1] = random.nextInt(64) + 1;
+               break;
+            case "large":
+               values[i] = Integer.MAX_VALUE - random.nextInt(1 << 20);
+               values[i + 1] = Integer.MAX_VALUE - random.nextInt(1 << 20);
+               break;
+            case "random":
+               values[i] = random.nextInt(Integer.MAX_VALUE) + 1;
+               values[i + 1] = random.nextInt(Integer.MAX_VALUE) + 1;
+               break;
+            case "adversarial":
+               int n = fibonacci.length - 1 - random.nextInt(8);
+               values[i] = fibonacci[n];
+               values[i + 1] = fibonacci[n - 1];
+               break;
+            default:
+               throw new IllegalArgumentException("Unknown input kind " + kind);
+         }
+      }
+      return values;
+   }
+
+   /**
+    * @return SIZE operands as text, mixing whole, fraction and mixed numbers
+    */
+   static String[] operands(String kind) {
+      int[] values = pairs(kind);
+      String[] operands = new String[SIZE];
+      for (int i = 0; i < SIZE; i++) {
+         int num = values[i * 2];
+         int den = values[i * 2 + 1];
+         switch (i % 4) {
+            case 0:
+               operands[i] = Integer.toString(num);
+               break;
+            case 1:
+               operands[i] = num + "/" + den;
+               break;
+            case 2:
+               operands[i] = (i % 64) + "_" + num + "/" + den;
+               break;
+            default:
+               operands[i] = "-" + (i % 64) + "_" + num + "/" + den;
+               break;
+         }
+      }
+      return operands;
+   }
+
+   /**
+    * @return SIZE two operand expressions using all four operators
+    */
+   static String[] expressions(String kind) {
+      String[] operands = operands(kind);
+      String[] expressions = new String[SIZE];
+      String operators = "+-*/";
+      for (int i = 0; i < SIZE; i++) {
+         expressions[i] = operands[i] + " " + operators.charAt(i % 4) + " " + operands[(i * 7 + 3) % SIZE];
+      }
+      return expressions;
+   }
+
+   // the Fibonacci numbers that fit in an int
+   private static int[] fibonacci() {
+      int[] fibonacci = new int[45];
+      fibonacci[0] = 1;
+      fibonacci[1] = 2;
+      for (int i = 2; i < fibonacci.length; i++) {
+         fibonacci[i] = fibonacci[i - 1] + fibonacci[i - 2];
+      }
+      return fibonacci;
+   }
+}
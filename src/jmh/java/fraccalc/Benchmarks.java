@@ -0,0 +1,25 @@
+package fraccalc;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with the GC profiler turned on, so every result
+ * also shows the allocation rate. It takes the same arguments as the normal
+ * JMH runner, for example:
+ * <ul>
+ * <li>java -jar target/benchmarks.jar</li>
+ * <li>java -jar target/benchmarks.jar GcdBenchmark -f 1 -wi 3 -i 5</li>
+ * </ul>
+ */
+public class Benchmarks {
+
+   public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+      CommandLineOptions options = new CommandLineOptions(args);
+      new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build()).run();
+   }
+}
@@ -0,0 +1,60 @@
+package fraccalc;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures whole expressions from text to text, plus a compiled expression
+ * evaluated against many inputs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+
+   @Param({ "small", "large", "adversarial" })
+   public String input;
+
+   private String[] expressions;
+   private Fraction[] values;
+   private Expression formula;
+
+   @Setup
+   public void setUp() {
+      expressions = BenchmarkData.expressions(input);
+      int[] pairs = BenchmarkData.pairs(input);
+      values = new Fraction[BenchmarkData.SIZE];
+      for (int i = 0; i < values.length; i++) {
+         values[i] = Fraction.of(pairs[i * 2], pairs[i * 2 + 1]);
+      }
+      formula = Expression.compile("1_1/2 * (x - 1/8) / 2");
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE)
+   public void evaluate(Blackhole blackhole) {
+      for (String expression : expressions) {
+         blackhole.consume(FracCalc.evaluate(expression));
+      }
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE)
+   public void processCommand(Blackhole blackhole) {
+      for (String expression : expressions) {
+         blackhole.consume(FracCalc.processCommand(expression));
+      }
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE)
+   public void compiledFormula(Blackhole blackhole) {
+      for (Fraction value : values) {
+         blackhole.consume(formula.evaluate(value));
+      }
+   }
+}
@@ -0,0 +1,69 @@
+package fraccalc;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the old modulo based Euclid loop that FracCalc.gcd used to have
+ * with the binary GCD it uses now. Euclid is still a little faster on the
+ * large pairs, as they are close together and one division leaves a small
+ * remainder; the binary GCD wins on random and adversarial pairs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GcdBenchmark {
+
+   @Param({ "small", "large", "random", "adversarial" })
+   public String input;
+
+   private int[] pairs;
+
+   @Setup
+   public void setUp() {
+      pairs = BenchmarkData.pairs(input);
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE)
+   public long euclid() {
+      long sum = 0;
+      for (int i = 0; i < pairs.length; i += 2) {
+         sum += euclid(pairs[i], pairs[i + 1]);
+      }
+      return sum;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE)
+   public long fracCalcGcd() {
+      long sum = 0;
+      for (int i = 0; i < pairs.length; i += 2) {
+         sum += FracCalc.gcd(pairs[i], pairs[i + 1]);
+      }
+      return sum;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE)
+   public long fractionGcd() {
+      long sum = 0;
+      for (int i = 0; i < pairs.length; i += 2) {
+         sum += Fraction.gcd(pairs[i], pairs[i + 1]);
+      }
+      return sum;
+   }
+
+   // the original FracCalc.gcd, kept as the baseline
+   private static int euclid(int num, int den) {
+      while (den != 0) {
+         int value = num % den;
+         num = den;
+         den = value;
+      }
+      return Math.abs(num);
+   }
+}
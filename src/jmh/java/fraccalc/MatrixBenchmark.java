@@ -0,0 +1,116 @@
+package fraccalc;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures solving a linear system and finding a determinant with
+ * FractionMatrix, which uses fraction-free Bareiss elimination, next to
+ * plain Gauss-Jordan elimination on Fraction objects, which reduces every
+ * cell after every step. The matrices have small fractions in them, like
+ * 3/4 and -5/12.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatrixBenchmark {
+
+   @Param({ "5", "20", "50" })
+   public int size;
+
+   private Fraction[][] a;
+   private Fraction[][] b;
+   private FractionMatrix matrix;
+   private FractionMatrix rightHandSide;
+
+   @Setup
+   public void setUp() {
+      Random random = new Random(42);
+      a = new Fraction[size][size];
+      b = new Fraction[size][1];
+      for (int i = 0; i < size; i++) {
+         for (int j = 0; j < size; j++) {
+            a[i][j] = Fraction.of(random.nextInt(19) - 9, 1 + random.nextInt(12));
+         }
+         b[i][0] = Fraction.of(random.nextInt(19) - 9, 1 + random.nextInt(12));
+      }
+      matrix = FractionMatrix.of(a);
+      rightHandSide = FractionMatrix.of(b);
+   }
+
+   @Benchmark
+   public FractionMatrix bareissSolve() {
+      return matrix.solve(rightHandSide);
+   }
+
+   @Benchmark
+   public Fraction[][] naiveSolve() {
+      int n = a.length;
+      Fraction[][] m = new Fraction[n][n + 1];
+      for (int i = 0; i < n; i++) {
+         System.arraycopy(a[i], 0, m[i], 0, n);
+         m[i][n] = b[i][0];
+      }
+      for (int k = 0; k < n; k++) {
+         int pivot = k;
+         while (m[pivot][k].signum() == 0) {
+            pivot++;
+         }
+         Fraction[] row = m[k];
+         m[k] = m[pivot];
+         m[pivot] = row;
+         Fraction scale = Fraction.ONE.divide(m[k][k]);
+         for (int j = k; j <= n; j++) {
+            m[k][j] = m[k][j].multiply(scale);
+         }
+         for (int i = 0; i < n; i++) {
+            Fraction factor = m[i][k];
+            if (i != k && factor.signum() != 0) {
+               for (int j = k; j <= n; j++) {
+                  m[i][j] = m[i][j].subtract(factor.multiply(m[k][j]));
+               }
+            }
+         }
+      }
+      return m;
+   }
+
+   @Benchmark
+   public Fraction bareissDeterminant() {
+      return matrix.determinant();
+   }
+
+   @Benchmark
+   public Fraction naiveDeterminant() {
+      int n = a.length;
+      Fraction[][] m = new Fraction[n][];
+      for (int i = 0; i < n; i++) {
+         m[i] = a[i].clone();
+      }
+      Fraction determinant = Fraction.ONE;
+      for (int k = 0; k < n; k++) {
+         int pivot = k;
+         while (m[pivot][k].signum() == 0) {
+            pivot++;
+         }
+         if (pivot != k) {
+            Fraction[] row = m[k];
+            m[k] = m[pivot];
+            m[pivot] = row;
+            determinant = determinant.negate();
+         }
+         determinant = determinant.multiply(m[k][k]);
+         for (int i = k + 1; i < n; i++) {
+            Fraction factor = m[i][k].divide(m[k][k]);
+            for (int j = k; j < n; j++) {
+               m[i][j] = m[i][j].subtract(factor.multiply(m[k][j]));
+            }
+         }
+      }
+      return determinant;
+   }
+}
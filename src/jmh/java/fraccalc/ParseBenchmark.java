@@ -0,0 +1,50 @@
+package fraccalc;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reads operands with the getNumerator, getWhole and getDenominator methods
+ * and with the single pass FractionTokenizer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+   @Param({ "small", "large", "adversarial" })
+   public String input;
+
+   private String[] operands;
+   private final FractionTokenizer tokenizer = new FractionTokenizer();
+
+   @Setup
+   public void setUp() {
+      operands = BenchmarkData.operands(input);
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE)
+   public void getters(Blackhole blackhole) {
+      for (String operand : operands) {
+         blackhole.consume(FracCalc.getWhole(operand));
+         blackhole.consume(FracCalc.getNumerator(operand));
+         blackhole.consume(FracCalc.getDenominator(operand));
+      }
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BenchmarkData.SIZE)
+   public void tokenizer(Blackhole blackhole) {
+      for (String operand : operands) {
+         tokenizer.reset(operand).next();
+         blackhole.consume(tokenizer.whole());
+         blackhole.consume(tokenizer.numerator());
+         blackhole.consume(tokenizer.denominator());
+      }
+   }
+}
@@ -0,0 +1,51 @@
+package fraccalc;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures editing one variable in a sheet shaped like a price list: each
+ * row has a price and a total of price * rate, and every total uses the one
+ * shared rate. Editing a price only works out its own total again, while
+ * editing the rate works out every total, which is what an edit cost before
+ * the sheet kept track of what depends on what.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SheetBenchmark {
+
+   @Param({ "1000", "10000" })
+   public int rows;
+
+   private Sheet sheet;
+   private String[] prices;
+   private int edit;
+
+   @Setup
+   public void setUp() {
+      sheet = new Sheet();
+      sheet.assign("rate", "1_1/8");
+      prices = new String[rows];
+      for (int i = 0; i < rows; i++) {
+         prices[i] = "p" + i;
+         sheet.assign(prices[i], (i + 1) + "/" + (i % 16 + 1));
+         sheet.assign("t" + i, "p" + i + " * rate - 1/100");
+      }
+   }
+
+   @Benchmark
+   public int editPrice() {
+      edit++;
+      return sheet.assign(prices[edit % rows], edit + "/7");
+   }
+
+   @Benchmark
+   public int editRate() {
+      edit++;
+      return sheet.assign("rate", edit + "/7");
+   }
+}
@@ -0,0 +1,65 @@
+package fraccalc;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the cold start of a one command run, java -jar fraccalc.jar
+ * "1/2 + 3/4", from launching the JVM to it exiting. It is run without
+ * class data sharing, with the JDK's default archive, and with the AppCDS
+ * archive that mvn -Pcds package makes.
+ * <p>
+ * The jar and archive are looked for in target, or wherever the
+ * fraccalc.jar and fraccalc.archive system properties say. Every run starts
+ * a new process, so warming up only warms the file cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 30)
+@Fork(1)
+public class StartupBenchmark {
+
+   @Param({ "off", "default", "app" })
+   public String sharing;
+
+   private ProcessBuilder command;
+
+   @Setup
+   public void setUp() throws IOException {
+      Path jar = Paths.get(System.getProperty("fraccalc.jar", "target/fraccalc-1.0-SNAPSHOT.jar"));
+      Path archive = Paths.get(System.getProperty("fraccalc.archive", "target/fraccalc.jsa"));
+      if (!Files.exists(jar)) {
+         throw new FileNotFoundException(jar + " is missing. Run mvn package first.");
+      }
+      List<String> args = new ArrayList<>();
+      args.add(ProcessHandle.current().info().command().orElse("java"));
+      if (sharing.equals("off")) {
+         args.add("-Xshare:off");
+      } else if (sharing.equals("app")) {
+         if (!Files.exists(archive)) {
+            throw new FileNotFoundException(archive + " is missing. Run mvn -Pcds package first.");
+         }
+         args.add("-XX:SharedArchiveFile=" + archive);
+      }
+      args.add("-jar");
+      args.add(jar.toString());
+      args.add("1/2 + 3/4");
+      command = new ProcessBuilder(args).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.INHERIT);
+   }
+
+   @Benchmark
+   public int oneCommand() throws IOException, InterruptedException {
+      int status = command.start().waitFor();
+      if (status != 0) {
+         throw new IllegalStateException("The calculator exited with " + status);
+      }
+      return status;
+   }
+}
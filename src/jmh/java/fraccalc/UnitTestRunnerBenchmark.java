@@ -0,0 +1,72 @@
+package fraccalc;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Runs a generated test file through UnitTestRunner.runTests, which covers
+ * reading the file, calling FracCalc and checking the output. The test
+ * output is thrown away while the benchmark runs. Reading the file alone is
+ * measured for the text and binary formats.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnitTestRunnerBenchmark {
+
+   @Param({ "small", "large", "adversarial" })
+   public String input;
+
+   private Path testFile;
+   private Path binaryFile;
+   private PrintStream console;
+
+   @Setup
+   public void setUp() throws IOException {
+      testFile = Files.createTempFile("tests_checkpoint", ".txt");
+      try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(testFile))) {
+         for (String expression : BenchmarkData.expressions(input)) {
+            String result;
+            try {
+               result = FracCalc.processCommand(expression);
+            } catch (ArithmeticException e) {
+               continue;
+            }
+            out.println(expression);
+            out.println(1);
+            out.println(result);
+         }
+      }
+      binaryFile = Files.createTempFile("tests_checkpoint", TestSuite.BINARY_EXTENSION);
+      readText().writeBinary(binaryFile);
+      console = System.out;
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+   }
+
+   @TearDown
+   public void tearDown() throws IOException {
+      System.setOut(console);
+      Files.deleteIfExists(testFile);
+      Files.deleteIfExists(binaryFile);
+   }
+
+   @Benchmark
+   public void runTests() {
+      UnitTestRunner.runTests(testFile.toString(), false, FracCalc::processCommand);
+   }
+
+   @Benchmark
+   public TestSuite readText() throws IOException {
+      return TestSuite.read(testFile.toFile());
+   }
+
+   @Benchmark
+   public TestSuite readBinary() throws IOException {
+      return TestSuite.read(binaryFile.toFile());
+   }
+}
@@ -0,0 +1,312 @@
+package fraccalc;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.*;
+
+/**
+ * Evaluates a file of expressions, one per line, and writes one result line
+ * for each. Input is read through a channel in large blocks and results are
+ * collected in one large output buffer that is only written when it fills
+ * up, so nothing is flushed line by line. Memory use stays the same no
+ * matter how big the file is.
+ * <p>
+ * Each line is an expression, worked out as FracCalc.evaluate does. A line
+ * that fails, for example by dividing by zero, produces an ERROR line instead
+ * of stopping the whole batch. The other prompt commands are ERROR lines too:
+ * stats, limit and shadow would change settings every worker thread shares,
+ * sum and avg would read other files, and help is more than one line.
+ * Settings are given on the command line instead.
+ * <p>
+ * Lines are independent, so they can be evaluated in parallel. The input is
+ * cut into chunks of lines, and each chunk is split up across a ForkJoinPool
+ * while the next chunk is being read and the previous one written. Results
+ * are always written in the same order as the input.
+ * <p>
+ * Usage: java FracCalc --batch [--threads n] [--chunk lines] [--cache size]
+ * [--limit denominator] [input file] [output file]
+ * <p>
+ * Without files it reads standard input and writes standard output. The
+ * number of threads defaults to the number of processors, and 1 evaluates
+ * every line on the reading thread. --cache turns on the FracCalc result
+ * cache with room for that many results, and --limit rounds every result
+ * to a fraction with at most that denominator, as the limit command does.
+ */
+public class BatchEvaluator {
+
+   private static final int INPUT_BUFFER_SIZE = 1 << 20;
+   private static final int OUTPUT_BUFFER_SIZE = 1 << 20;
+   private static final int DEFAULT_CHUNK_SIZE = 16384;
+
+   // a fork/join task does at most this many lines without splitting
+   private static final int SPLIT_THRESHOLD = 256;
+
+   private final ByteBuffer input = ByteBuffer.allocate(INPUT_BUFFER_SIZE);
+   private final ByteBuffer output = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE);
+   private final WritableByteChannel out;
+   private final ForkJoinPool pool;
+   private long lines;
+
+   // the chunk being filled, and the chunk being evaluated by the pool
+   private String[] commands;
+   private int count;
+   private String[] pendingCommands;
+   private String[] pendingResults;
+   private int pendingCount;
+   private ForkJoinTask<?> pending;
+
+   private BatchEvaluator(WritableByteChannel out, int parallelism, int chunkSize) {
+      this.out = out;
+      if (parallelism > 1) {
+         pool = new ForkJoinPool(parallelism);
+         commands = new String[chunkSize];
+         pendingCommands = new String[chunkSize];
+         pendingResults = new String[chunkSize];
+      } else {
+         pool = null;
+      }
+   }
+
+   public static void main(String[] args) {
+      int parallelism = Runtime.getRuntime().availableProcessors();
+      int chunkSize = DEFAULT_CHUNK_SIZE;
+      int arg = 0;
+      try {
+         while (arg + 1 < args.length && args[arg].startsWith("--")) {
+            if (args[arg].equals("--threads")) {
+               parallelism = Integer.parseInt(args[arg + 1]);
+            } else if (args[arg].equals("--chunk")) {
+               chunkSize = Integer.parseInt(args[arg + 1]);
+            } else if (args[arg].equals("--cache")) {
+               FracCalc.cache = FracCalc.createCache(Integer.parseInt(args[arg + 1]));
+            } else if (args[arg].equals("--limit")) {
+               FracCalc.limit = Long.parseLong(args[arg + 1]);
+            } else {
+               break;
+            }
+            arg += 2;
+         }
+      } catch (NumberFormatException e) {
+         System.err.println("Expected a number after " + args[arg]);
+         return;
+      }
+      if (parallelism < 1 || chunkSize < 1) {
+         System.err.println("The number of threads and the chunk size must be at least 1");
+         return;
+      }
+
+      long start = System.nanoTime();
+      try (ReadableByteChannel in = args.length > arg ? FileChannel.open(Paths.get(args[arg]))
+            : Channels.newChannel(System.in);
+            WritableByteChannel out = args.length > arg + 1 ? FileChannel.open(Paths.get(args[arg + 1]),
+                  StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+                  : Channels.newChannel(System.out)) {
+         long count = run(in, out, parallelism, chunkSize);
+         System.err.printf("Evaluated %d lines in %d ms (parallelism %d, chunk size %d lines)%n", count,
+               (System.nanoTime() - start) / 1_000_000, parallelism, chunkSize);
+         if (FracCalc.cache != null) {
+            System.err.println(FracCalc.cache);
+         }
+      } catch (IOException e) {
+         System.err.println("Batch failed: " + e.getMessage());
+      }
+   }
+
+   /**
+    * Evaluates every line of the input on the calling thread and writes the
+    * results to the output. The channels are not closed.
+    *
+    * @param in  Where the expressions are read from
+    * @param out Where the results are written
+    * @return The number of lines evaluated
+    * @throws IOException if reading or writing fails
+    */
+   public static long run(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+      return run(in, out, 1, DEFAULT_CHUNK_SIZE);
+   }
+
+   /**
+    * Evaluates every line of the input and writes the results to the output
+    * in input order. The channels are not closed.
+    *
+    * @param in          Where the expressions are read from
+    * @param out         Where the results are written
+    * @param parallelism The number of threads to evaluate with
+    * @param chunkSize   The number of lines handed to the threads at a time
+    * @return The number of lines evaluated
+    * @throws IOException if reading or writing fails
+    */
+   public static long run(ReadableByteChannel in, WritableByteChannel out, int parallelism, int chunkSize)
+         throws IOException {
+      BatchEvaluator batch = new BatchEvaluator(out, parallelism, chunkSize);
+      try {
+         batch.evaluateAll(in);
+      } finally {
+         if (batch.pool != null) {
+            batch.pool.shutdownNow();
+         }
+      }
+      return batch.lines;
+   }
+
+   /**
+    * Evaluates one expression the way the batch does. This is safe to call
+    * from many threads at once, and doesn't change any shared settings.
+    *
+    * @param expression The expression to evaluate
+    * @return The result, or an ERROR message if the expression failed or
+    *         was some other command
+    */
+   public static String evaluate(String expression) {
+      try {
+         return FracCalc.evaluate(expression);
+      } catch (RuntimeException e) {
+         return "ERROR: " + e.getMessage();
+      }
+   }
+
+   private void evaluateAll(ReadableByteChannel in) throws IOException {
+      byte[] bytes = input.array();
+      boolean eof = false;
+      while (!eof) {
+         eof = in.read(input) < 0;
+         int limit = input.position();
+         int lineStart = 0;
+         for (int i = 0; i < limit; i++) {
+            if (bytes[i] == '\n') {
+               addLine(bytes, lineStart, i);
+               lineStart = i + 1;
+            }
+         }
+         if (eof && lineStart < limit) {
+            // the last line has no line break
+            addLine(bytes, lineStart, limit);
+            lineStart = limit;
+         } else if (lineStart == 0 && limit == bytes.length) {
+            throw new IOException("Line is longer than " + INPUT_BUFFER_SIZE + " bytes");
+         }
+         // keep the partial line for the next read
+         input.position(lineStart);
+         input.limit(limit);
+         input.compact();
+      }
+      if (pool != null) {
+         submitChunk();
+         writePending();
+      }
+      flush();
+   }
+
+   private void addLine(byte[] bytes, int start, int end) throws IOException {
+      if (end > start && bytes[end - 1] == '\r') {
+         end--;
+      }
+      String command = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+      lines++;
+      if (pool == null) {
+         writeLine(evaluate(command));
+         return;
+      }
+      commands[count++] = command;
+      if (count == commands.length) {
+         submitChunk();
+      }
+   }
+
+   // writes the chunk in the pool, then hands it the chunk just read
+   private void submitChunk() throws IOException {
+      writePending();
+      // the pool is idle now, so its array can be filled next
+      String[] chunk = commands;
+      commands = pendingCommands;
+      pendingCommands = chunk;
+      pendingCount = count;
+      pending = pool.submit(new EvaluateRange(chunk, pendingResults, 0, count));
+      count = 0;
+   }
+
+   private void writePending() throws IOException {
+      if (pending == null) {
+         return;
+      }
+      pending.join();
+      for (int i = 0; i < pendingCount; i++) {
+         writeLine(pendingResults[i]);
+         pendingCommands[i] = null;
+         pendingResults[i] = null;
+      }
+      pending = null;
+   }
+
+   private void writeLine(String result) throws IOException {
+      write(result);
+      write('\n');
+   }
+
+   private void write(String text) throws IOException {
+      for (int i = 0; i < text.length(); i++) {
+         char c = text.charAt(i);
+         if (c >= 0x80) {
+            // rare, so just let the String encode itself
+            byte[] encoded = text.substring(i).getBytes(StandardCharsets.UTF_8);
+            for (byte b : encoded) {
+               write(b);
+            }
+            return;
+         }
+         write((byte) c);
+      }
+   }
+
+   private void write(int b) throws IOException {
+      if (!output.hasRemaining()) {
+         flush();
+      }
+      output.put((byte) b);
+   }
+
+   private void flush() throws IOException {
+      output.flip();
+      while (output.hasRemaining()) {
+         out.write(output);
+      }
+      output.clear();
+   }
+
+   /**
+    * Evaluates a range of commands, splitting it in half until the pieces
+    * are small enough. Each result goes in the same index as its command.
+    */
+   private static class EvaluateRange extends RecursiveAction {
+
+      private static final long serialVersionUID = 1L;
+
+      private final String[] commands;
+      private final String[] results;
+      private final int from;
+      private final int to;
+
+      EvaluateRange(String[] commands, String[] results, int from, int to) {
+         this.commands = commands;
+         this.results = results;
+         this.from = from;
+         this.to = to;
+      }
+
+      @Override
+      protected void compute() {
+         if (to - from <= SPLIT_THRESHOLD) {
+            for (int i = from; i < to; i++) {
+               results[i] = evaluate(commands[i]);
+            }
+            return;
+         }
+         int middle = (from + to) >>> 1;
+         invokeAll(new EvaluateRange(commands, results, from, middle),
+               new EvaluateRange(commands, results, middle, to));
+      }
+   }
+}
@@ -0,0 +1,327 @@
+package fraccalc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A fraction expression that has been compiled once into a small postfix
+ * program, so it can be evaluated again and again without reparsing.
+ * Expressions can use + - * /, parentheses, unary minus, and variables such
+ * as x, for example:
+ * <ul>
+ * <li>1_1/2 * (3/4 - 1/8) / 2</li>
+ * <li>x * 3/4 + y</li>
+ * </ul>
+ * Multiplication and division come before addition and subtraction, and
+ * operators of the same level are done left to right. Parts of the
+ * expression that only use numbers are worked out while compiling.
+ * <p>
+ * A compiled expression never changes, so it is safe to share between
+ * threads and to keep in a cache.
+ */
+public final class Expression {
+
+   // instructions. CONSTANT and VARIABLE are followed by an index
+   private static final int CONSTANT = 0;
+   private static final int VARIABLE = 1;
+   private static final int ADD = 2;
+   private static final int SUBTRACT = 3;
+   private static final int MULTIPLY = 4;
+   private static final int DIVIDE = 5;
+   private static final int NEGATE = 6;
+
+   // parentheses or minus signs nested deeper than this are rejected
+   // to protect the stack
+   private static final int MAX_NESTING = 256;
+
+   private final String source;
+   private final int[] code;
+   private final Fraction[] constants;
+   private final String[] variables;
+   private final int maxStack;
+
+   private Expression(String source, int[] code, Fraction[] constants, String[] variables, int maxStack) {
+      this.source = source;
+      this.code = code;
+      this.constants = constants;
+      this.variables = variables;
+      this.maxStack = maxStack;
+   }
+
+   /**
+    * Compiles an expression.
+    *
+    * @param text The expression to compile
+    * @return The compiled expression
+    * @throws IllegalArgumentException if the expression can't be read. The
+    *                                  message says what is wrong and where.
+    */
+   public static Expression compile(CharSequence text) {
+      return new Compiler(text).compile();
+   }
+
+   /**
+    * @return The number of different variables in the expression
+    */
+   public int variableCount() {
+      return variables.length;
+   }
+
+   /**
+    * @return The name of a variable. Values passed to evaluate() are in the
+    *         same order.
+    */
+   public String variable(int index) {
+      return variables[index];
+   }
+
+   /**
+    * @return The names of the variables in the order they first appear
+    */
+   public List<String> variables() {
+      return List.of(variables);
+   }
+
+   /**
+    * Evaluates the expression.
+    *
+    * @param values The value of each variable, in the order of variables()
+    * @return The exact result
+    * @throws IllegalArgumentException if the number of values is wrong
+    * @throws ArithmeticException      if the expression divides by zero
+    */
+   public Fraction evaluate(Fraction... values) {
+      if (values.length != variables.length) {
+         if (values.length < variables.length) {
+            throw new IllegalArgumentException("No value for variable " + variables[values.length]);
+         }
+         throw new IllegalArgumentException("Expected " + variables.length + " values but got " + values.length);
+      }
+      Fraction[] stack = new Fraction[maxStack];
+      int top = -1;
+      int pc = 0;
+      while (pc < code.length) {
+         switch (code[pc++]) {
+            case CONSTANT:
+               stack[++top] = constants[code[pc++]];
+               break;
+            case VARIABLE:
+               stack[++top] = values[code[pc++]];
+               break;
+            case ADD:
+               top--;
+               stack[top] = stack[top].add(stack[top + 1]);
+               break;
+            case SUBTRACT:
+               top--;
+               stack[top] = stack[top].subtract(stack[top + 1]);
+               break;
+            case MULTIPLY:
+               top--;
+               stack[top] = stack[top].multiply(stack[top + 1]);
+               break;
+            case DIVIDE:
+               top--;
+               stack[top] = stack[top].divide(stack[top + 1]);
+               break;
+            default:
+               stack[top] = stack[top].negate();
+               break;
+         }
+      }
+      return stack[0];
+   }
+
+   /**
+    * @return The text the expression was compiled from
+    */
+   @Override
+   public String toString() {
+      return source;
+   }
+
+   /**
+    * A recursive descent parser that writes postfix instructions:
+    * <ul>
+    * <li>expression: term (('+' | '-') term)*</li>
+    * <li>term: factor (('*' | '/') factor)*</li>
+    * <li>factor: '-' factor | operand | variable | '(' expression ')'</li>
+    * </ul>
+    */
+   private static final class Compiler {
+
+      private final CharSequence text;
+      private final FractionTokenizer tokens;
+      private final ArrayList<Fraction> constants = new ArrayList<>();
+      private final ArrayList<String> variables = new ArrayList<>();
+      private int[] code = new int[16];
+      private int size;
+      private int depth;
+      private int maxDepth;
+      private int nesting;
+
+      // for each value on the stack while compiling, the index of its
+      // constant when it is just a constant, otherwise -1
+      private int[] slots = new int[16];
+
+      Compiler(CharSequence text) {
+         this.text = text;
+         this.tokens = new FractionTokenizer(text);
+      }
+
+      Expression compile() {
+         tokens.next();
+         expression();
+         if (tokens.token() != FractionTokenizer.Token.END) {
+            throw error("an operator");
+         }
+         return new Expression(text.toString(), Arrays.copyOf(code, size), constants.toArray(new Fraction[0]),
+               variables.toArray(new String[0]), maxDepth);
+      }
+
+      private void expression() {
+         term();
+         while (isOperator('+') || isOperator('-')) {
+            int op = tokens.operator() == '+' ? ADD : SUBTRACT;
+            tokens.next();
+            term();
+            emitBinary(op);
+         }
+      }
+
+      private void term() {
+         factor();
+         while (isOperator('*') || isOperator('/')) {
+            int op = tokens.operator() == '*' ? MULTIPLY : DIVIDE;
+            tokens.next();
+            factor();
+            emitBinary(op);
+         }
+      }
+
+      private void factor() {
+         switch (tokens.token()) {
+            case OPERAND:
+               emitConstant(tokens.operand());
+               tokens.next();
+               break;
+            case VARIABLE:
+               String name = tokens.name();
+               int index = variables.indexOf(name);
+               if (index < 0) {
+                  index = variables.size();
+                  variables.add(name);
+               }
+               emitVariable(index);
+               tokens.next();
+               break;
+            case OPEN:
+               if (++nesting > MAX_NESTING) {
+                  throw error("fewer parentheses");
+               }
+               tokens.next();
+               expression();
+               if (tokens.token() != FractionTokenizer.Token.CLOSE) {
+                  throw error("')'");
+               }
+               nesting--;
+               tokens.next();
+               break;
+            default:
+               if (isOperator('-')) {
+                  if (++nesting > MAX_NESTING) {
+                     throw error("fewer minus signs");
+                  }
+                  tokens.next();
+                  factor();
+                  emitNegate();
+                  nesting--;
+                  break;
+               }
+               throw error("a number");
+         }
+      }
+
+      private boolean isOperator(char operator) {
+         return tokens.token() == FractionTokenizer.Token.OPERATOR && tokens.operator() == operator;
+      }
+
+      private void emitConstant(Fraction value) {
+         constants.add(value);
+         emit(CONSTANT, constants.size() - 1, 1);
+         slots[depth - 1] = constants.size() - 1;
+      }
+
+      private void emitVariable(int index) {
+         emit(VARIABLE, index, 1);
+         slots[depth - 1] = -1;
+      }
+
+      private void emitBinary(int op) {
+         int left = slots[depth - 2];
+         int right = slots[depth - 1];
+         // two plain constants are always the last two instructions, so
+         // they can be replaced by their result unless that would throw
+         if (left >= 0 && right >= 0 && (op != DIVIDE || constants.get(right).signum() != 0)) {
+            Fraction value = apply(op, constants.get(left), constants.get(right));
+            constants.remove(right);
+            constants.remove(left);
+            size -= 4;
+            depth -= 2;
+            emitConstant(value);
+            return;
+         }
+         emit(op, -1, -1);
+         slots[depth - 1] = -1;
+      }
+
+      private void emitNegate() {
+         int index = slots[depth - 1];
+         if (index >= 0) {
+            constants.set(index, constants.get(index).negate());
+            return;
+         }
+         emit(NEGATE, -1, 0);
+      }
+
+      // writes an instruction, with an argument when arg is not -1
+      private void emit(int op, int arg, int stackChange) {
+         if (size + 2 > code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+         }
+         code[size++] = op;
+         if (arg >= 0) {
+            code[size++] = arg;
+         }
+         depth += stackChange;
+         if (depth > maxDepth) {
+            maxDepth = depth;
+            if (maxDepth > slots.length) {
+               slots = Arrays.copyOf(slots, slots.length * 2);
+            }
+         }
+      }
+
+      private IllegalArgumentException error(String expected) {
+         String problem = tokens.error();
+         if (problem == null) {
+            problem = "Expected " + expected;
+         }
+         return new IllegalArgumentException(problem + " at position " + tokens.tokenStart());
+      }
+
+      private static Fraction apply(int op, Fraction left, Fraction right) {
+         switch (op) {
+            case ADD:
+               return left.add(right);
+            case SUBTRACT:
+               return left.subtract(right);
+            case MULTIPLY:
+               return left.multiply(right);
+            default:
+               return left.divide(right);
+         }
+      }
+   }
+}
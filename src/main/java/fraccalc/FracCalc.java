@@ -0,0 +1,682 @@
+// Tanisha Thakare
+// Fraction Calculator Project
+
+package fraccalc;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+// This program can do a number of mathematical operations with whole numbers, fractions
+//and mixed numbers. You can add, subtract, multiply, and divide fractions!
+//To type in a fraction use / and to type a mixed number use _ in between the whole number and the numerator!
+//for example 3/4 + 5_3/4
+//Longer expressions with parentheses work too, like 1_1/2 * (3/4 - 1/8) / 2
+
+public class FracCalc {
+
+   // It is best if we have only one console object for input.
+   // It is made the first time input is asked for, so working out
+   // a single command from the command line never loads a Scanner.
+   public static Scanner console;
+   
+   // Optional cache of results for two operand expressions. It is off (null)
+   // unless the fraccalc.cache system property gives it a size.
+   public static volatile ResultCache cache = createCache(Integer.getInteger("fraccalc.cache", 0));
+   
+   // The largest denominator a result may have, set with the limit
+   // command. Results with bigger ones are replaced by the closest fraction
+   // that fits. It is 0, off, unless the fraccalc.limit system property
+   // sets it.
+   public static volatile long limit = Long.getLong("fraccalc.limit", 0);
+   
+   // Shadow mode runs a sample of expressions through the original int
+   // calculator in LegacyFracCalc as well, and compares its answers with
+   // evaluate's.
+   // The rate is 0, off, unless the fraccalc.shadow system property or the
+   // shadow command sets it, for example to 0.01 for one in a hundred.
+   public static final ShadowEvaluator shadow = createShadow(System.getProperty("fraccalc.shadow", "0"));
+   
+   public static void main(String[] args) {
+      //java FracCalc --batch [input file] [output file]
+      //evaluates a whole file instead of asking for input.
+      if (args.length > 0 && args[0].equals("--batch")) {
+         BatchEvaluator.main(Arrays.copyOfRange(args, 1, args.length));
+         return;
+      }
+      //java FracCalc --server [--port n | --unix path] answers commands
+      //over a socket, and --load sends it commands to measure it.
+      if (args.length > 0 && args[0].equals("--server")) {
+         FracCalcServer.main(Arrays.copyOfRange(args, 1, args.length));
+         return;
+      }
+      if (args.length > 0 && args[0].equals("--load")) {
+         LoadGenerator.main(Arrays.copyOfRange(args, 1, args.length));
+         return;
+      }
+      //java FracCalc "1/2 + 3/4" works out one command, prints the result
+      //and exits, for scripts that call the calculator many times. The
+      //exit status is 1 if the result is an ERROR.
+      if (args.length > 0 && !args[0].startsWith("--")) {
+         String result;
+         try {
+            result = processCommand(String.join(" ", args));
+         } catch (RuntimeException e) {
+            result = "ERROR: " + e.getMessage();
+         }
+         System.out.println(result);
+         if (result.startsWith("ERROR")) {
+            System.exit(1);
+         }
+         return;
+      }
+   
+      boolean done = false;
+      
+      //The variables assigned at the prompt, such as a = 1_1/2. Commands
+      //recorded with test create see them too.
+      Sheet sheet = new Sheet();
+      
+      while (!done) {
+         
+         String input = getInput();
+         
+         
+         if (input.equalsIgnoreCase("quit")) {
+            done = true;
+         } else if (!UnitTestRunner.processCommand(input, in -> processCommand(in, sheet))) {
+        	   
+            String result = processCommand(input, sheet);
+            
+            
+            System.out.println(result);
+         }
+      }
+      
+      System.out.println("Goodbye!");
+      console.close();
+   }
+
+   
+   public static String getInput() {
+      System.out.printf("Enter: ");
+      if (console == null) {
+         console = new Scanner(System.in);
+      }
+      String response = console.nextLine();
+      return response;
+   }
+  
+   //Creates the shadow mode with the rate from the system property.
+   private static ShadowEvaluator createShadow(String rate) {
+      //processExpression is now evaluate too, so the reference is the
+      //original calculator, kept as it was.
+      ShadowEvaluator evaluator = new ShadowEvaluator(input -> evaluateExact(input, null),
+            LegacyFracCalc::processExpression);
+      try {
+         evaluator.setRate(Double.parseDouble(rate));
+      } catch (IllegalArgumentException e) {
+         System.err.println("fraccalc.shadow should be a rate from 0 to 1, not " + rate);
+      }
+      return evaluator;
+   }
+   
+   //Creates a result cache of the given size, or returns null for 0.
+   public static ResultCache createCache(int size) {
+      return size > 0 ? new ResultCache(size) : null;
+   }
+   
+   //Commands only share the result cache, which is thread safe,
+   //so this method is safe to call from many threads at once.
+   //There are no variables, so assignments are errors.
+   public static String processCommand(String input) {
+      return processCommand(input, null);
+   }
+   
+   //This is processCommand with variables. An assignment such as
+   //b = a * 3/4 goes into the sheet, and only the variables that use b
+   //are worked out again. vars lists the variables, and expressions can
+   //use them. The sheet is thread safe too.
+   public static String processCommand(String input, Sheet sheet) {
+      int equals = Sheet.assignment(input);
+      if (equals >= 0) {
+         return assign(input.substring(0, equals).trim(), input.substring(equals + 1), sheet);
+      }
+      if (input.trim().equalsIgnoreCase("vars")) {
+         if (sheet == null || sheet.toString().isEmpty()) {
+            return "There are no variables.";
+         }
+         return sheet.toString();
+      }
+      if (input.equalsIgnoreCase("help")) {
+         return provideHelp();
+      }
+      if (input.equalsIgnoreCase("stats") || input.toLowerCase().startsWith("stats ")) {
+         return stats(input.substring(5).trim());
+      }
+      if (input.equalsIgnoreCase("limit") || input.toLowerCase().startsWith("limit ")) {
+         return limit(input.substring(5).trim());
+      }
+      if (input.equalsIgnoreCase("shadow") || input.toLowerCase().startsWith("shadow ")) {
+         return shadow(input.substring(6).trim());
+      }
+      if (input.toLowerCase().startsWith("det ") || input.toLowerCase().startsWith("inverse ")
+            || input.toLowerCase().startsWith("solve ") || input.toLowerCase().startsWith("multiply ")) {
+         int space = input.indexOf(' ');
+         return matrix(input.substring(0, space).toLowerCase(), input.substring(space + 1));
+      }
+      if (input.toLowerCase().startsWith("compare ")) {
+         return compare(input.substring(8));
+      }
+      if (input.toLowerCase().startsWith("sort ")) {
+         return sort(input.substring(5));
+      }
+      if (input.toLowerCase().startsWith("sum ")) {
+         return aggregate(input.substring(4).trim(), false);
+      }
+      if (input.toLowerCase().startsWith("avg ")) {
+         return aggregate(input.substring(4).trim(), true);
+      }
+      
+      return evaluate(input, sheet);
+   }
+   
+   //This method handles name = expression. The result is the new value.
+   public static String assign(String name, String expression, Sheet sheet) {
+      if (sheet == null) {
+         return "ERROR: Variables can only be assigned at the prompt";
+      }
+      try {
+         sheet.assign(name, expression);
+         return name + " = " + sheet.get(name);
+      } catch (IllegalArgumentException e) {
+         return "ERROR: " + e.getMessage();
+      }
+   }
+   
+   //This method works out a whole expression, such as 1_1/2 * (3/4 - 1/8) / 2.
+   //The expression is compiled first, so * and / are done before + and -.
+   public static String evaluate(String input) {
+      return evaluate(input, null);
+   }
+   
+   //This is evaluate with the values of the variables in the sheet, which
+   //can be null for no variables.
+   public static String evaluate(String input, Sheet sheet) {
+      long max = limit;
+      if (max > 0) {
+         return approximate(input, sheet, max);
+      }
+      if (shadow.sample()) {
+         return shadow.compare(input, text -> evaluateExact(text, sheet));
+      }
+      return evaluateExact(input, sheet);
+   }
+   
+   //This is evaluate without the limit or shadow mode.
+   public static String evaluateExact(String input, Sheet sheet) {
+      //Expressions with just two operands are by far the most common,
+      //so they are worked out directly, and can come from the cache.
+      //The start time is 0 unless the stats are turned on.
+      //Dividing by zero throws an ArithmeticException, which is an ERROR
+      //like any other, on either path.
+      long start = Metrics.start();
+      try {
+         FractionTokenizer tokens = new FractionTokenizer(input);
+         if (tokens.next() == FractionTokenizer.Token.OPERAND) {
+            Fraction left = tokens.operand();
+            if (tokens.next() == FractionTokenizer.Token.OPERATOR) {
+               char operator = tokens.operator();
+               if (tokens.next() == FractionTokenizer.Token.OPERAND) {
+                  Fraction right = tokens.operand();
+                  if (tokens.next() == FractionTokenizer.Token.END) {
+                     String result = calculate(left, operator, right);
+                     Metrics.record(operator, start);
+                     return result;
+                  }
+               }
+            }
+         }
+         
+         Expression expression = Expression.compile(input);
+         Fraction value = sheet == null ? expression.evaluate() : sheet.evaluate(expression);
+         String result = value.toString();
+         Metrics.recordExpression(start);
+         return result;
+      } catch (IllegalArgumentException | ArithmeticException e) {
+         Metrics.recordError(start);
+         return "ERROR: " + e.getMessage();
+      }
+   }
+   
+   //This method works out an expression exactly and then replaces the
+   //result with the closest fraction whose denominator is at most max.
+   //How far that is from the exact result is shown after it, like
+   //3 16/113 (error 2.67e-07).
+   public static String approximate(String input, Sheet sheet, long max) {
+      long start = Metrics.start();
+      try {
+         Expression expression = Expression.compile(input);
+         Fraction exact = sheet == null ? expression.evaluate() : sheet.evaluate(expression);
+         Fraction result = exact.limitDenominator(max);
+         Metrics.recordExpression(start);
+         if (result == exact) {
+            return result.toString();
+         }
+         double error = exact.subtract(result).abs().doubleValue();
+         return result + String.format(" (error %.3g)", error);
+      } catch (IllegalArgumentException | ArithmeticException e) {
+         Metrics.recordError(start);
+         return "ERROR: " + e.getMessage();
+      }
+   }
+   
+   //This method handles the limit command. "limit 1000000" keeps results
+   //to denominators of at most a million, "limit off" turns that off
+   //again, and "limit" on its own shows the limit.
+   public static String limit(String option) {
+      if (option.isEmpty()) {
+         return limit > 0 ? "Denominators are limited to " + limit + "." : "Results are exact.";
+      }
+      if (option.equalsIgnoreCase("off")) {
+         limit = 0;
+         return "Results are exact.";
+      }
+      try {
+         long max = Long.parseLong(option);
+         if (max < 1) {
+            return "ERROR: The limit must be at least 1";
+         }
+         limit = max;
+         return "Denominators are limited to " + max + ".";
+      } catch (NumberFormatException e) {
+         return "ERROR: Type limit and a number, or limit off";
+      }
+   }
+   
+   //This method handles the shadow command. "shadow 0.01" or "shadow 1%"
+   //compares one expression in a hundred with the original calculator,
+   //"shadow off" stops, "shadow reset" clears the counts, and "shadow" on its own
+   //shows the divergences and how much slower or faster the old way is.
+   public static String shadow(String option) {
+      if (option.isEmpty()) {
+         return shadow.report();
+      }
+      if (option.equalsIgnoreCase("off")) {
+         shadow.setRate(0);
+         return "Shadow mode is off.";
+      }
+      if (option.equalsIgnoreCase("reset")) {
+         shadow.reset();
+         return "The shadow counts are reset.";
+      }
+      try {
+         double rate;
+         if (option.endsWith("%")) {
+            rate = Double.parseDouble(option.substring(0, option.length() - 1).trim()) / 100;
+         } else {
+            rate = Double.parseDouble(option);
+         }
+         shadow.setRate(rate);
+         return String.format("Shadow mode compares %.4g%% of expressions.", shadow.getRate() * 100);
+      } catch (NumberFormatException e) {
+         return "ERROR: Type shadow and a rate such as 0.01 or 1%, shadow off, or shadow reset";
+      } catch (IllegalArgumentException e) {
+         return "ERROR: " + e.getMessage();
+      }
+   }
+   
+   //This method handles the stats command, which shows how long commands
+   //take. "stats on" and "stats off" turn the stats on and off, and
+   //"stats reset" starts them again from zero.
+   public static String stats(String option) {
+      if (option.equalsIgnoreCase("on")) {
+         Metrics.setEnabled(true);
+         return "Stats are on.";
+      } else if (option.equalsIgnoreCase("off")) {
+         Metrics.setEnabled(false);
+         return "Stats are off.";
+      } else if (option.equalsIgnoreCase("reset")) {
+         Metrics.reset();
+         return "Stats are reset.";
+      }
+      return Metrics.report();
+   }
+   
+   //This method handles the compare command, such as compare 2/3 5/8,
+   //which says which of two fractions is bigger.
+   public static String compare(String input) {
+      List<Fraction> fractions = new ArrayList<>();
+      String error = readFractions(input, fractions);
+      if (error != null) {
+         return error;
+      }
+      if (fractions.size() != 2) {
+         return "ERROR: compare needs two fractions";
+      }
+      Fraction left = fractions.get(0);
+      Fraction right = fractions.get(1);
+      //compareTo cross multiplies, so nothing is divided or reduced.
+      int order = left.compareTo(right);
+      String sign = order < 0 ? " < " : order > 0 ? " > " : " = ";
+      return left + sign + right;
+   }
+   
+   //This method handles the sort command, such as sort 3/4 -1_1/2 2/4,
+   //which lists fractions from smallest to largest. "sort unique" leaves
+   //out repeats, so sort unique 1/2 2/4 is just 1/2.
+   public static String sort(String input) {
+      boolean unique = false;
+      String rest = input.trim();
+      if (rest.toLowerCase().startsWith("unique ")) {
+         unique = true;
+         rest = rest.substring(7);
+      }
+      List<Fraction> fractions = new ArrayList<>();
+      String error = readFractions(rest, fractions);
+      if (error != null) {
+         return error;
+      }
+      Fraction[] sorted = fractions.toArray(new Fraction[0]);
+      Arrays.sort(sorted);
+      
+      //The results are separated by commas because mixed numbers have spaces in them.
+      StringBuilder result = new StringBuilder();
+      for (int i = 0; i < sorted.length; i++) {
+         if (unique && i > 0 && sorted[i].compareTo(sorted[i - 1]) == 0) {
+            continue;
+         }
+         if (result.length() > 0) {
+            result.append(", ");
+         }
+         result.append(sorted[i]);
+      }
+      return result.toString();
+   }
+   
+   //This method reads fractions separated by spaces into a list.
+   //Each one is read on its own, so -1/2 is a negative number and not a minus.
+   //It returns an error message, or null if they could all be read.
+   public static String readFractions(String input, List<Fraction> fractions) {
+      FractionTokenizer tokens = new FractionTokenizer();
+      int i = 0;
+      while (i < input.length()) {
+         if (Character.isWhitespace(input.charAt(i))) {
+            i++;
+            continue;
+         }
+         int start = i;
+         while (i < input.length() && !Character.isWhitespace(input.charAt(i))) {
+            i++;
+         }
+         tokens.reset(input, start, i);
+         if (tokens.next() != FractionTokenizer.Token.OPERAND) {
+            return parseError(tokens, "a number");
+         }
+         fractions.add(tokens.operand());
+         if (tokens.next() != FractionTokenizer.Token.END) {
+            return parseError(tokens, "a space");
+         }
+      }
+      if (fractions.isEmpty()) {
+         return "ERROR: Expected a number";
+      }
+      return null;
+   }
+   
+   //This method handles the matrix commands. A matrix is typed with its
+   //rows separated by semicolons, so 1 2; 3 4 has 1 and 2 on the top row.
+   //det 1 2; 3 4 is its determinant and inverse 1 2; 3 4 its inverse.
+   //solve 2 1; 1 3 | 3; 5 solves 2x + y = 3 and x + 3y = 5, and
+   //multiply 1 2; 3 4 * 5; 6 multiplies two matrices.
+   public static String matrix(String command, String input) {
+      char separator = command.equals("solve") ? '|' : command.equals("multiply") ? '*' : 0;
+      int split = separator == 0 ? input.length() : input.indexOf(separator);
+      if (split < 0) {
+         return "ERROR: " + command + " needs two matrices separated by " + separator;
+      }
+      List<Fraction[]> left = new ArrayList<>();
+      String error = readMatrix(input.substring(0, split), left);
+      List<Fraction[]> right = new ArrayList<>();
+      if (error == null && separator != 0) {
+         error = readMatrix(input.substring(split + 1), right);
+      }
+      if (error != null) {
+         return error;
+      }
+      try {
+         FractionMatrix matrix = FractionMatrix.of(left.toArray(new Fraction[0][]));
+         if (command.equals("det")) {
+            return matrix.determinant().toString();
+         } else if (command.equals("inverse")) {
+            return matrix.inverse().toString();
+         }
+         FractionMatrix other = FractionMatrix.of(right.toArray(new Fraction[0][]));
+         if (command.equals("solve")) {
+            return matrix.solve(other).toString();
+         }
+         return matrix.multiply(other).toString();
+      } catch (IllegalArgumentException | ArithmeticException e) {
+         return "ERROR: " + e.getMessage();
+      }
+   }
+   
+   //This method reads the rows of a matrix, separated by semicolons, into
+   //the list. It returns null if they could all be read, or an ERROR.
+   public static String readMatrix(String input, List<Fraction[]> rows) {
+      for (String row : input.split(";", -1)) {
+         List<Fraction> cells = new ArrayList<>();
+         String error = readFractions(row, cells);
+         if (error != null) {
+            return error;
+         }
+         rows.add(cells.toArray(new Fraction[0]));
+      }
+      return null;
+   }
+   
+   //This method handles the sum and avg commands, such as sum data.txt,
+   //which add up every fraction in a file. The fractions can be one to a
+   //line or several to a line separated by spaces.
+   public static String aggregate(String file, boolean average) {
+      FractionStatistics stats;
+      try (Stream<String> lines = Files.lines(Paths.get(file))) {
+         //The lines are read in parallel. Each thread keeps its own exact
+         //total, and the totals are combined at the end.
+         stats = lines.parallel().collect(FractionStatistics::new, FracCalc::addLine, FractionStatistics::combine);
+      } catch (NoSuchFileException e) {
+         return "ERROR: No such file " + file;
+      } catch (IOException | UncheckedIOException e) {
+         return "ERROR: Could not read " + file + ": " + e.getMessage();
+      } catch (IllegalArgumentException | ArithmeticException e) {
+         return "ERROR: " + e.getMessage();
+      }
+      if (stats.getCount() == 0) {
+         return "ERROR: There are no fractions in " + file;
+      }
+      return (average ? stats.getAverage() : stats.getSum()).toString();
+   }
+   
+   //This method adds the fractions on one line of a file to the stats.
+   //Fractions without a whole number are added straight from their parts.
+   public static void addLine(FractionStatistics stats, String line) {
+      FractionTokenizer tokens = new FractionTokenizer();
+      int i = 0;
+      while (i < line.length()) {
+         if (Character.isWhitespace(line.charAt(i))) {
+            i++;
+            continue;
+         }
+         int start = i;
+         while (i < line.length() && !Character.isWhitespace(line.charAt(i))) {
+            i++;
+         }
+         tokens.reset(line, start, i);
+         if (tokens.next() != FractionTokenizer.Token.OPERAND || tokens.next() != FractionTokenizer.Token.END) {
+            throw new IllegalArgumentException("\"" + line.substring(start, i) + "\" is not a fraction");
+         }
+         if (tokens.whole() == 0) {
+            stats.accept(tokens.negative() ? -tokens.numerator() : tokens.numerator(), tokens.denominator());
+         } else {
+            stats.accept(tokens.operand());
+         }
+      }
+   }
+   
+   //This is the original entry point, kept for callers that use it. It is
+   //evaluateExact without variables, so a problem such as dividing by zero
+   //is an ERROR answer rather than an exception.
+   public static String processExpression(String input) {
+      return evaluateExact(input, null);
+   }
+
+   //This method works out left operator right and formats the result.
+   //When the cache is turned on, repeated calculations come from the cache.
+   public static String calculate(Fraction left, char operator, Fraction right) {
+      ResultCache results = cache;
+      if (results == null) {
+         return apply(left, operator, right).toString();
+      }
+      String result = results.get(left, operator, right);
+      if (result == null) {
+         result = apply(left, operator, right).toString();
+         results.put(left, operator, right, result);
+      }
+      return result;
+   }
+   
+   //This method does the arithmetic for one operator.
+   public static Fraction apply(Fraction left, char operator, Fraction right) {
+      //When the operator is the star(*), it multiplies.
+      if (operator == '*') {
+         return left.multiply(right);
+      // When the operator is a slash (/) , it divides.
+      } else if (operator == '/') {
+         return left.divide(right);
+      // When the operator is a minus sign (-), it subtracts.
+      } else if (operator == '-') {
+         return left.subtract(right);
+      }
+      return left.add(right);
+   }
+
+   //This method builds the message for an expression that can't be read.
+   //It says what went wrong and where, for example:
+   //ERROR: Expected an operator at position 4
+   public static String parseError(FractionTokenizer tokens, String expected) {
+      String problem = tokens.error();
+      if (problem == null) {
+         problem = "Expected " + expected;
+      }
+      return "ERROR: " + problem + " at position " + tokens.tokenStart();
+   }
+
+//This method is responsible for doing the division of an expression.
+   public static String division(int num1, int num2, int den1, int den2) {
+      return Fraction.of(num1, den1).divide(Fraction.of(num2, den2)).toString();
+   }
+   
+   //This method is responsible for doing the multiplication of an expression.
+   public static String multiplication(int num1, int num2, int den1, int den2) {     
+      return Fraction.of(num1, den1).multiply(Fraction.of(num2, den2)).toString();
+   }
+   //This method is responsible for simplifying the negative signs.
+   //For example, if the num and den both have a negative sign, it becomes positive.
+   public static String SimplifyNegative(String num, String den) {
+      //if num and den are negative, change to positive.
+      if (num.contains("-") && den.contains("-")) {
+         num = num.substring(1);
+         //removes negative sign
+         den = den.substring(1);
+      //if the denominator has a negative, the negative gets
+      //removed from the denominator and moves to the numerator.
+      } else if (den.contains("-")) {
+         num = "-" + num;
+         //removes the negative
+         den = den.substring(1); 
+      } 
+      return num + "/" + den;
+   }
+     
+   //This method is responsible for simplifying fractions.
+   //e.g. 4/8 ---> 1/2
+   public static String simplify(int num, int den) {
+      //FractionFormat reduces the fraction and writes the whole number,
+      //numerator and denominator digit by digit, with the same signs as
+      //SimplifyNegative, so no Strings are made along the way.
+      //The one difference is that int division wraps Integer.MIN_VALUE / -1
+      //back to Integer.MIN_VALUE, which simplify has always printed.
+      if (num == Integer.MIN_VALUE && den == -1) {
+         return Integer.toString(num);
+      }
+      //With a positive denominator, the reduced fraction prints the same way,
+      //and small ones, which are most of them, have their GCD and their
+      //String looked up in the SmallFractions tables instead of worked out.
+      if (den > 0) {
+         long g = Fraction.gcd(num, den);
+         return Fraction.toString(num / g, den / g);
+      }
+      return FractionFormat.MIXED.format(num, den);
+   } 
+   
+   //This method is responsible for finding the GCD of 2 numbers.
+   //It uses the binary GCD in Fraction, which only shifts and subtracts,
+   //or looks the answer up in a table when both numbers are small. That is
+   //faster than dividing, except for numbers that are close together.
+   public static int gcd(int num, int den) {
+      return (int) Fraction.gcd(num, den);
+   }
+   //This method gets the numerator
+   public static int getNumerator(String num) {
+      if (num.contains("/") && num.contains("_")) {
+         String hold = num.substring(num.indexOf("_") + 1 , num.indexOf("/"));
+         return Integer.parseInt(hold);
+      } 
+      else if(num.contains("/") && !num.contains("_")) {
+         return Integer.parseInt(num.substring(0, num.indexOf("/")));
+      }
+      return 0;     
+   }
+     
+   //This method gets the whole number. 
+   public static int getWhole(String num) {
+      if (!num.contains("/") && !num.contains("_")) {
+         return Integer.parseInt(num);
+      }
+      else if (num.contains("_")) {
+         return Integer.parseInt(num.substring(0, num.indexOf("_")));
+      }
+      return 0;
+   }
+   
+   //This method gets denominator  
+   public static int getDenominator(String num) {
+      //if the num contains a slash, it is a fraction.
+      if (num.contains("/")) {
+         return Integer.parseInt(num.substring(num.indexOf("/") + 1));
+      }
+      //if the num doesn't contain the slash, the denominator will always be 1
+      //because if the denominator is zero, that means it's undefined.
+      return 1;
+   }
+
+   // Returns a string that is helpful to the user about how
+   // to use the program. These are instructions to the user.
+   public static String provideHelp() {
+      
+      String help = "Hi! Welcome to the Fraction Calculator.\n";
+      help += "You can add, subtract, multiply, and divide fractions!\nTo type in a fraction use / "; 
+      help += "and to type a mixed number use _ in between the whole number and the numerator!\n";
+      help += "Type stats to see how long calculations take, and stats on or stats off to turn that on or off.\n";
+      help += "Type compare and two fractions to see which is bigger, or sort and a list of fractions to put them in order.\n";
+      help += "Type sum or avg and the name of a file of fractions to add them all up or find their average.\n";
+      help += "Type a name, = and an expression, like b = a * 3/4, to make a variable, and vars to see them all.\n";
+      help += "Type limit and a number to round results to fractions with denominators no bigger than it, and limit off for exact results.\n";
+      help += "Type shadow and a rate such as 1% to check that share of answers against the old calculator, and shadow to see how they compare.\n";
+      help += "Type det, inverse, solve or multiply and a matrix with its rows separated by ;, like det 1 2; 3 4, solve 2 1; 1 3 | 3; 5 or multiply 1 2; 3 4 * 5; 6.\n";
+      help += "Have Fun!!!";
+      
+      return help;
+   }
+}
\ No newline at end of file
@@ -0,0 +1,436 @@
+package fraccalc;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves FracCalc expressions over a local socket, so a client doesn't have
+ * to start a JVM for every calculation. It listens on a loopback TCP port or
+ * a Unix domain socket.
+ * <p>
+ * The protocol is one expression per line, in the same syntax as the
+ * FracCalc prompt. Each answer is the lines of the result followed by an
+ * empty line, so a client knows where a result with several lines ends. An
+ * empty line inside a result is sent as a single space. "quit" closes the
+ * connection.
+ * <p>
+ * Only expressions are evaluated. The other prompt commands are not served,
+ * because every client shares the process: stats, limit and shadow would let
+ * one client change the settings for all of them, and sum and avg would let
+ * a client read any file the server can. The limit and shadow rate can still
+ * be set for the whole server with the fraccalc.limit and fraccalc.shadow
+ * system properties.
+ * <p>
+ * A client can send many commands without waiting for the answers. They
+ * are answered in order, and everything that can be answered from one read
+ * goes back in one write.
+ * <p>
+ * Each connection gets its own thread. On Java 21 and later that is a
+ * virtual thread, and before that a platform thread from a cached pool.
+ * Closing the server stops it from accepting connections, answers the
+ * commands it has already read on each connection, and then closes them.
+ * Commands that had not been read yet are not answered.
+ * <p>
+ * Usage: java FracCalc --server [--port n | --unix path]
+ */
+public final class FracCalcServer implements Closeable {
+
+   public static final int DEFAULT_PORT = 7070;
+
+   private static final int BUFFER_SIZE = 1 << 16;
+   private static final int BACKLOG = 1024;
+   // how long close waits for connections to finish before closing them
+   private static final long SHUTDOWN_MILLIS = 5000;
+
+   private final ServerSocketChannel server;
+   private final SocketAddress address;
+   private final ExecutorService threads = newThreadPerConnection();
+   private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+   private final Thread acceptor;
+   private final CountDownLatch closed = new CountDownLatch(1);
+   private volatile boolean closing;
+
+   private FracCalcServer(SocketAddress bindTo) throws IOException {
+      if (bindTo instanceof UnixDomainSocketAddress) {
+         server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+      } else {
+         server = ServerSocketChannel.open();
+      }
+      try {
+         server.bind(bindTo, BACKLOG);
+      } catch (IOException e) {
+         server.close();
+         throw e;
+      }
+      address = server.getLocalAddress();
+      acceptor = new Thread(this::accept, "FracCalcServer " + address);
+      acceptor.start();
+   }
+
+   /**
+    * Starts a server listening on the given address.
+    *
+    * @param address A loopback InetSocketAddress, which can have port 0 for
+    *                any free port, or a UnixDomainSocketAddress
+    * @return The running server
+    * @throws IOException if the address can't be listened on
+    */
+   public static FracCalcServer start(SocketAddress address) throws IOException {
+      return new FracCalcServer(address);
+   }
+
+   public static void main(String[] args) {
+      SocketAddress address;
+      try {
+         address = address(args);
+      } catch (IllegalArgumentException e) {
+         System.err.println(e.getMessage());
+         return;
+      }
+      FracCalcServer server;
+      try {
+         server = start(address);
+      } catch (IOException e) {
+         System.err.println("Could not listen on " + address + ": " + e.getMessage());
+         return;
+      }
+      Runtime.getRuntime().addShutdownHook(new Thread(server::close, "FracCalcServer shutdown"));
+      System.err.println("Listening on " + server.address() + ". Press Ctrl-C to stop.");
+      server.awaitClose();
+   }
+
+   /**
+    * Reads --port n or --unix path from the command line, for the server and
+    * for {@link LoadGenerator}.
+    *
+    * @return The loopback port, which is {@link #DEFAULT_PORT} if neither is
+    *         given, or the Unix domain socket
+    * @throws IllegalArgumentException if the arguments can't be read
+    */
+   static SocketAddress address(String[] args) {
+      for (int i = 0; i < args.length; i++) {
+         if (args[i].equals("--port") || args[i].equals("--unix")) {
+            if (i + 1 == args.length) {
+               throw new IllegalArgumentException("Expected a value after " + args[i]);
+            }
+            if (args[i].equals("--unix")) {
+               return UnixDomainSocketAddress.of(args[i + 1]);
+            }
+            try {
+               return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[i + 1]));
+            } catch (NumberFormatException e) {
+               throw new IllegalArgumentException("Expected a number after --port");
+            }
+         }
+      }
+      return new InetSocketAddress(InetAddress.getLoopbackAddress(), DEFAULT_PORT);
+   }
+
+   /**
+    * @return The address the server is listening on
+    */
+   public SocketAddress address() {
+      return address;
+   }
+
+   /**
+    * Waits until the server has been closed and every connection has
+    * finished.
+    */
+   public void awaitClose() {
+      try {
+         closed.await();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * Stops accepting connections, lets each connection answer the commands
+    * it has already read, and closes them. Connections still busy after a
+    * few seconds are closed anyway.
+    */
+   @Override
+   public void close() {
+      synchronized (this) {
+         if (closing) {
+            awaitClose();
+            return;
+         }
+         closing = true;
+      }
+      try {
+         server.close();
+         acceptor.join();
+         for (Connection connection : connections) {
+            connection.finish();
+         }
+         threads.shutdown();
+         if (!threads.awaitTermination(SHUTDOWN_MILLIS, TimeUnit.MILLISECONDS)) {
+            for (Connection connection : connections) {
+               connection.abort();
+            }
+            threads.shutdownNow();
+         }
+      } catch (IOException e) {
+         System.err.println("Could not close " + address + ": " + e.getMessage());
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      } finally {
+         if (address instanceof UnixDomainSocketAddress) {
+            try {
+               Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+            } catch (IOException e) {
+               // the socket file is left behind
+            }
+         }
+         closed.countDown();
+      }
+   }
+
+   // the acceptor thread
+   private void accept() {
+      while (!closing) {
+         SocketChannel channel;
+         try {
+            channel = server.accept();
+         } catch (IOException e) {
+            if (!closing) {
+               System.err.println("Could not accept a connection: " + e.getMessage());
+            }
+            continue;
+         }
+         Connection connection = new Connection(channel);
+         connections.add(connection);
+         try {
+            threads.execute(connection);
+         } catch (RejectedExecutionException e) {
+            // the server is closing
+            connections.remove(connection);
+            connection.abort();
+         }
+      }
+   }
+
+   // one thread per connection. Virtual threads are only in Java 21 and
+   // later, so they are looked up rather than called directly.
+   private static ExecutorService newThreadPerConnection() {
+      try {
+         Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+         return (ExecutorService) virtual.invoke(null);
+      } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+         AtomicInteger count = new AtomicInteger();
+         return Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "FracCalcServer connection " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+         });
+      }
+   }
+
+   private final class Connection implements Runnable {
+      private final SocketChannel channel;
+      private final ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+      private final ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE);
+      // true while skipping the rest of a line that was too long
+      private boolean skipping;
+      // set when the server is closing, and whether the connection is
+      // waiting in a read, guarded by this
+      private boolean finishing;
+      private boolean reading;
+
+      Connection(SocketChannel channel) {
+         this.channel = channel;
+      }
+
+      @Override
+      public void run() {
+         try {
+            if (channel.supportedOptions().contains(StandardSocketOptions.TCP_NODELAY)) {
+               // answers are already sent in batches, so don't hold them back
+               channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+            serve();
+         } catch (IOException e) {
+            // the client went away
+         } finally {
+            abort();
+            connections.remove(this);
+         }
+      }
+
+      // lets the connection answer what it has read, then close. One that
+      // is waiting for a command is woken up by ending its input.
+      synchronized void finish() {
+         finishing = true;
+         if (reading) {
+            try {
+               channel.shutdownInput();
+            } catch (IOException e) {
+               abort();
+            }
+         }
+      }
+
+      void abort() {
+         try {
+            channel.close();
+         } catch (IOException e) {
+            // already closed
+         }
+      }
+
+      private void serve() throws IOException {
+         byte[] bytes = input.array();
+         while (true) {
+            if (!startRead()) {
+               linger();
+               return;
+            }
+            boolean eof;
+            try {
+               eof = channel.read(input) < 0;
+            } finally {
+               endRead();
+            }
+            int limit = input.position();
+            int lineStart = 0;
+            for (int i = 0; i < limit; i++) {
+               if (bytes[i] == '\n') {
+                  boolean more = answer(bytes, lineStart, i);
+                  lineStart = i + 1;
+                  if (!more) {
+                     flush();
+                     return;
+                  }
+               }
+            }
+            if (eof) {
+               if (lineStart < limit && !isFinishing()) {
+                  // the client ended with a line that has no line break
+                  answer(bytes, lineStart, limit);
+               }
+               flush();
+               return;
+            }
+            if (lineStart == 0 && limit == bytes.length) {
+               if (!skipping) {
+                  writeResult("ERROR: The line is longer than " + BUFFER_SIZE + " bytes");
+               }
+               skipping = true;
+               lineStart = limit;
+            }
+            // keep the partial line for the next read
+            input.position(lineStart);
+            input.limit(limit);
+            input.compact();
+            // everything that has arrived is answered, so send it before
+            // waiting for more
+            flush();
+         }
+      }
+
+      private synchronized boolean startRead() {
+         reading = !finishing;
+         return reading;
+      }
+
+      private synchronized void endRead() {
+         reading = false;
+      }
+
+      private synchronized boolean isFinishing() {
+         return finishing;
+      }
+
+      // the server closed while this connection was busy, so commands the
+      // client sent since may still be unread. Closing now would reset the
+      // connection and lose the answers on their way, so this ends the
+      // output and throws away input until the client closes too, or the
+      // server gives up on it.
+      private void linger() throws IOException {
+         channel.shutdownOutput();
+         input.clear();
+         while (channel.read(input) >= 0) {
+            input.clear();
+         }
+      }
+
+      // answers one line. Returns false for quit.
+      private boolean answer(byte[] bytes, int start, int end) throws IOException {
+         if (skipping) {
+            // the end of the line that was too long
+            skipping = false;
+            return true;
+         }
+         if (end > start && bytes[end - 1] == '\r') {
+            end--;
+         }
+         String command = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+         if (command.trim().equalsIgnoreCase("quit")) {
+            return false;
+         }
+         // an expression, and nothing that changes or reads the server's
+         // state, the same as a batch line
+         writeResult(BatchEvaluator.evaluate(command));
+         return true;
+      }
+
+      private void writeResult(String result) throws IOException {
+         int end = result.length();
+         while (end > 0 && result.charAt(end - 1) == '\n') {
+            end--;
+         }
+         boolean lineStart = true;
+         for (int i = 0; i < end; i++) {
+            char c = result.charAt(i);
+            if (c == '\n' && lineStart) {
+               // keep the empty line that ends the answer unambiguous
+               write(' ');
+            }
+            if (c >= 0x80) {
+               // rare, so just let the String encode the run of them
+               int runEnd = i + 1;
+               while (runEnd < end && result.charAt(runEnd) >= 0x80) {
+                  runEnd++;
+               }
+               for (byte b : result.substring(i, runEnd).getBytes(StandardCharsets.UTF_8)) {
+                  write(b);
+               }
+               i = runEnd - 1;
+            } else {
+               write(c);
+            }
+            lineStart = c == '\n';
+         }
+         if (end == 0) {
+            write(' ');
+         }
+         write('\n');
+         write('\n');
+      }
+
+      private void write(int b) throws IOException {
+         if (!output.hasRemaining()) {
+            flush();
+         }
+         output.put((byte) b);
+      }
+
+      private void flush() throws IOException {
+         output.flip();
+         while (output.hasRemaining()) {
+            channel.write(output);
+         }
+         output.clear();
+      }
+   }
+}
@@ -0,0 +1,674 @@
+package fraccalc;
+
+import java.math.BigInteger;
+
+/**
+ * An immutable fraction kept in lowest terms with a primitive long numerator
+ * and denominator. The denominator is always positive, so the sign of the
+ * fraction lives on the numerator.
+ * <p>
+ * All of the arithmetic happens on primitives. Text is only produced at the
+ * edge by {@link #toString()}, which uses the same mixed number format as
+ * FracCalc, for example 3/4, -1/2, 5 3/4 or -2 1/3.
+ * <p>
+ * Results are always exact. The long arithmetic is checked, and when a value
+ * no longer fits in a long the fraction switches to a BigInteger
+ * representation. A reduced result that fits in a long again goes back to the
+ * primitive representation, so small values never pay for BigInteger.
+ */
+public final class Fraction implements Comparable<Fraction> {
+
+   public static final Fraction ZERO = new Fraction(0, 1);
+   public static final Fraction ONE = new Fraction(1, 1);
+
+   private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+
+   private final long num;
+   private final long den;
+
+   // only set when the value does not fit in a long, otherwise null
+   private final BigInteger bigNum;
+   private final BigInteger bigDen;
+
+   // the values must already be reduced with a positive denominator
+   private Fraction(long num, long den) {
+      this.num = num;
+      this.den = den;
+      this.bigNum = null;
+      this.bigDen = null;
+   }
+
+   private Fraction(BigInteger bigNum, BigInteger bigDen) {
+      this.num = 0;
+      this.den = 0;
+      this.bigNum = bigNum;
+      this.bigDen = bigDen;
+   }
+
+   /**
+    * Creates a fraction for a whole number.
+    *
+    * @param whole The whole number
+    * @return whole/1
+    */
+   public static Fraction of(long whole) {
+      if (whole == 0) {
+         return ZERO;
+      } else if (whole == 1) {
+         return ONE;
+      } else if (whole == Long.MIN_VALUE) {
+         return of(BigInteger.valueOf(whole), BigInteger.ONE);
+      }
+      return small(whole, 1);
+   }
+
+   /**
+    * Creates a fraction and reduces it to lowest terms.
+    *
+    * @param num The numerator
+    * @param den The denominator, which may be negative but not zero
+    * @return The reduced fraction
+    * @throws ArithmeticException if den is zero
+    */
+   public static Fraction of(long num, long den) {
+      if (den == 0) {
+         throw new ArithmeticException("Denominator is zero");
+      }
+      if (num == 0) {
+         return ZERO;
+      }
+      if (num == Long.MIN_VALUE || den == Long.MIN_VALUE) {
+         // the sign of these can't be flipped in a long
+         return of(BigInteger.valueOf(num), BigInteger.valueOf(den));
+      }
+      long g = gcd(num, den);
+      num /= g;
+      den /= g;
+      if (den < 0) {
+         num = -num;
+         den = -den;
+      }
+      return small(num, den);
+   }
+
+   /**
+    * Creates a fraction from BigIntegers and reduces it to lowest terms. The
+    * result uses the long representation whenever it fits.
+    *
+    * @param num The numerator
+    * @param den The denominator, which may be negative but not zero
+    * @return The reduced fraction
+    * @throws ArithmeticException if den is zero
+    */
+   public static Fraction of(BigInteger num, BigInteger den) {
+      if (den.signum() == 0) {
+         throw new ArithmeticException("Denominator is zero");
+      }
+      if (num.signum() == 0) {
+         return ZERO;
+      }
+      Metrics.bigIntegerFallback();
+      BigInteger g = num.gcd(den);
+      if (!g.equals(BigInteger.ONE)) {
+         num = num.divide(g);
+         den = den.divide(g);
+      }
+      if (den.signum() < 0) {
+         num = num.negate();
+         den = den.negate();
+      }
+      if (fitsInLong(num) && fitsInLong(den)) {
+         return new Fraction(num.longValue(), den.longValue());
+      }
+      Metrics.overflow();
+      return new Fraction(num, den);
+   }
+
+   /**
+    * Creates a fraction from the parts of a mixed number such as -1_1/2. Like
+    * FracCalc, a negative whole number makes the whole mixed number negative.
+    *
+    * @param whole The whole number part
+    * @param num   The numerator of the fraction part
+    * @param den   The denominator of the fraction part
+    * @return The reduced improper fraction
+    */
+   public static Fraction mixed(long whole, long num, long den) {
+      if (whole < 0) {
+         num = -num;
+      }
+      try {
+         return of(Math.addExact(Math.multiplyExact(den, whole), num), den);
+      } catch (ArithmeticException e) {
+         BigInteger d = BigInteger.valueOf(den);
+         return of(d.multiply(BigInteger.valueOf(whole)).add(BigInteger.valueOf(num)), d);
+      }
+   }
+
+   /**
+    * Creates the fraction that is exactly equal to a double. Every finite
+    * double is a whole number times a power of two, so the denominator is a
+    * power of two. Use {@link #limitDenominator(long)} on the result for a
+    * simpler fraction that is close to it, such as 1/3 for 0.3333333333333333.
+    *
+    * @throws ArithmeticException if the value is infinite or NaN
+    */
+   public static Fraction valueOf(double value) {
+      if (Double.isNaN(value) || Double.isInfinite(value)) {
+         throw new ArithmeticException(value + " is not a fraction");
+      }
+      if (value == 0) {
+         return ZERO;
+      }
+      long bits = Double.doubleToRawLongBits(value);
+      int exponent = (int) (bits >>> 52) & 0x7ff;
+      long mantissa = bits & ((1L << 52) - 1);
+      if (exponent == 0) {
+         // subnormal, so there is no hidden bit
+         exponent = 1;
+      } else {
+         mantissa |= 1L << 52;
+      }
+      // value is mantissa * 2^exponent, and an odd mantissa leaves it reduced
+      exponent -= 1075;
+      int zeros = Long.numberOfTrailingZeros(mantissa);
+      mantissa >>= zeros;
+      exponent += zeros;
+      if (value < 0) {
+         mantissa = -mantissa;
+      }
+      if (exponent < 0) {
+         if (exponent > -63) {
+            return reduced(mantissa, 1L << -exponent);
+         }
+         return new Fraction(BigInteger.valueOf(mantissa), BigInteger.ONE.shiftLeft(-exponent));
+      }
+      // the mantissa has at most 53 bits
+      if (exponent <= 9) {
+         return of(mantissa << exponent);
+      }
+      return of(BigInteger.valueOf(mantissa).shiftLeft(exponent), BigInteger.ONE);
+   }
+
+   /**
+    * @return true if the numerator and denominator are held as longs
+    */
+   public boolean fitsInLong() {
+      return bigNum == null;
+   }
+
+   /**
+    * @throws ArithmeticException if the numerator does not fit in a long
+    */
+   public long numerator() {
+      if (bigNum != null) {
+         throw new ArithmeticException("Numerator does not fit in a long");
+      }
+      return num;
+   }
+
+   /**
+    * @throws ArithmeticException if the denominator does not fit in a long
+    */
+   public long denominator() {
+      if (bigNum != null) {
+         throw new ArithmeticException("Denominator does not fit in a long");
+      }
+      return den;
+   }
+
+   public BigInteger bigNumerator() {
+      return bigNum != null ? bigNum : BigInteger.valueOf(num);
+   }
+
+   public BigInteger bigDenominator() {
+      return bigNum != null ? bigDen : BigInteger.valueOf(den);
+   }
+
+   public int signum() {
+      return bigNum != null ? bigNum.signum() : Long.signum(num);
+   }
+
+   public boolean isInteger() {
+      return bigNum != null ? bigDen.equals(BigInteger.ONE) : den == 1;
+   }
+
+   public Fraction add(Fraction other) {
+      if (bigNum == null && other.bigNum == null) {
+         try {
+            return addLong(num, den, other.num, other.den);
+         } catch (ArithmeticException e) {
+            // overflow, so redo it with BigIntegers below
+         }
+      }
+      return addBig(bigNumerator(), bigDenominator(), other.bigNumerator(), other.bigDenominator());
+   }
+
+   // the same LCM based sum as addLong, on reduced fractions with positive
+   // denominators. The only GCDs taken are of the denominators and of the
+   // small factor they share, so a big running total stays cheap to add to.
+   private static Fraction addBig(BigInteger n1, BigInteger d1, BigInteger n2, BigInteger d2) {
+      BigInteger g = d1.gcd(d2);
+      if (g.equals(BigInteger.ONE)) {
+         // the denominators share nothing, so neither does the sum
+         return reduced(n1.multiply(d2).add(n2.multiply(d1)), d1.multiply(d2));
+      }
+      BigInteger s = d1.divide(g);
+      BigInteger t = n1.multiply(d2.divide(g)).add(n2.multiply(s));
+      BigInteger g2 = t.gcd(g);
+      if (g2.equals(BigInteger.ONE)) {
+         return reduced(t, s.multiply(d2));
+      }
+      return reduced(t.divide(g2), s.multiply(d2.divide(g2)));
+   }
+
+   // a fraction of BigIntegers that is already in lowest terms with a
+   // positive denominator
+   private static Fraction reduced(BigInteger num, BigInteger den) {
+      if (num.signum() == 0) {
+         return ZERO;
+      }
+      Metrics.bigIntegerFallback();
+      if (fitsInLong(num) && fitsInLong(den)) {
+         return new Fraction(num.longValue(), den.longValue());
+      }
+      Metrics.overflow();
+      return new Fraction(num, den);
+   }
+
+   public Fraction subtract(Fraction other) {
+      if (bigNum == null && other.bigNum == null) {
+         try {
+            // other.num is never Long.MIN_VALUE, so it can be negated
+            return addLong(num, den, -other.num, other.den);
+         } catch (ArithmeticException e) {
+            // overflow, so redo it with BigIntegers below
+         }
+      }
+      return addBig(bigNumerator(), bigDenominator(), other.bigNumerator().negate(), other.bigDenominator());
+   }
+
+   public Fraction multiply(Fraction other) {
+      if (bigNum == null && other.bigNum == null) {
+         try {
+            return multiplyLong(num, den, other.num, other.den);
+         } catch (ArithmeticException e) {
+            // overflow, so redo it with BigIntegers below
+         }
+      }
+      return of(bigNumerator().multiply(other.bigNumerator()), bigDenominator().multiply(other.bigDenominator()));
+   }
+
+   /**
+    * @throws ArithmeticException if other is zero
+    */
+   public Fraction divide(Fraction other) {
+      if (other.signum() == 0) {
+         throw new ArithmeticException("Divide by zero");
+      }
+      if (bigNum == null && other.bigNum == null) {
+         try {
+            // dividing is multiplying by the reciprocal, with the sign
+            // moved up to the numerator
+            if (other.num < 0) {
+               return multiplyLong(num, den, -other.den, -other.num);
+            }
+            return multiplyLong(num, den, other.den, other.num);
+         } catch (ArithmeticException e) {
+            // overflow, so redo it with BigIntegers below
+         }
+      }
+      return of(bigNumerator().multiply(other.bigDenominator()), bigDenominator().multiply(other.bigNumerator()));
+   }
+
+   /**
+    * @return The double nearest to the fraction. Values between 2^-1022 and
+    *         the largest double are correctly rounded, and smaller ones can
+    *         be one unit in the last place off.
+    */
+   public double doubleValue() {
+      if (bigNum == null && Math.abs(num) <= 1L << 53 && den <= 1L << 53) {
+         // both are exact as doubles, and IEEE division rounds correctly
+         return (double) num / den;
+      }
+      BigInteger n = bigNumerator().abs();
+      BigInteger d = bigDenominator();
+      // scale so the quotient has 55 or 56 bits: 53 for the double, and
+      // more below them so it rounds the right way
+      int shift = 55 - (n.bitLength() - d.bitLength());
+      if (shift > 0) {
+         n = n.shiftLeft(shift);
+      } else {
+         d = d.shiftLeft(-shift);
+      }
+      BigInteger[] parts = n.divideAndRemainder(d);
+      long quotient = parts[0].longValue();
+      if (parts[1].signum() != 0) {
+         // anything left over makes a tie round away from even correctly
+         quotient |= 1;
+      }
+      double value = Math.scalb((double) quotient, -shift);
+      return signum() < 0 ? -value : value;
+   }
+
+   /**
+    * Finds the closest fraction to this one whose denominator is at most
+    * max. The continued fraction of the value gives a sequence of ever
+    * closer convergents; the last one within the limit is a candidate, and
+    * so is the closest fraction between it and the previous convergent,
+    * found by taking as many Stern-Brocot mediant steps toward the value as
+    * the limit allows. The result is whichever of the two is closer, which
+    * is the best approximation there is with that denominator or smaller.
+    *
+    * @param max The largest denominator allowed
+    * @return This fraction if its denominator is already small enough,
+    *         otherwise the best approximation
+    * @throws IllegalArgumentException if max is less than 1
+    */
+   public Fraction limitDenominator(long max) {
+      if (max < 1) {
+         throw new IllegalArgumentException("The denominator limit must be at least 1");
+      }
+      if (bigNum == null) {
+         return den <= max ? this : limitLong(num, den, max);
+      }
+      BigInteger limit = BigInteger.valueOf(max);
+      if (bigDen.compareTo(limit) <= 0) {
+         return this;
+      }
+      // the convergents p/q, starting from 0/1 and 1/0
+      BigInteger p0 = BigInteger.ZERO;
+      BigInteger q0 = BigInteger.ONE;
+      BigInteger p1 = BigInteger.ONE;
+      BigInteger q1 = BigInteger.ZERO;
+      BigInteger n = bigNum;
+      BigInteger d = bigDen;
+      while (true) {
+         BigInteger[] parts = floorDivide(n, d);
+         BigInteger q2 = q0.add(parts[0].multiply(q1));
+         if (q2.compareTo(limit) > 0) {
+            break;
+         }
+         BigInteger p2 = p0.add(parts[0].multiply(p1));
+         p0 = p1;
+         q0 = q1;
+         p1 = p2;
+         q1 = q2;
+         n = d;
+         d = parts[1];
+      }
+      BigInteger k = limit.subtract(q0).divide(q1);
+      BigInteger qa = q0.add(k.multiply(q1));
+      // see limitLong for how the two are compared
+      if (d.multiply(qa).compareTo(n.subtract(k.multiply(d)).multiply(q1)) <= 0) {
+         return of(p1, q1);
+      }
+      return of(p0.add(k.multiply(p1)), qa);
+   }
+
+   // limitDenominator for a fraction held in longs. No convergent has a
+   // bigger numerator or denominator than the fraction, so nothing here
+   // can overflow.
+   private Fraction limitLong(long n, long d, long max) {
+      long p0 = 0;
+      long q0 = 1;
+      long p1 = 1;
+      long q1 = 0;
+      while (true) {
+         long a = Math.floorDiv(n, d);
+         long q2 = q0 + a * q1;
+         if (q2 > max) {
+            break;
+         }
+         long p2 = p0 + a * p1;
+         p0 = p1;
+         q0 = q1;
+         p1 = p2;
+         q1 = q2;
+         long r = n - a * d;
+         n = d;
+         d = r;
+      }
+      long k = (max - q0) / q1;
+      long qa = q0 + k * q1;
+      // n and d are left as |q0 x - p0| and |q1 x - p1| times the original
+      // denominator, with opposite signs, so the mediant's error is
+      // n - k * d over its denominator. The convergent wins a tie, as its
+      // denominator is smaller. Cross multiplying in 128 bits compares the
+      // errors without making any fractions that would overflow.
+      if (compare(d, q1, n - k * d, qa) <= 0) {
+         return of(p1, q1);
+      }
+      return of(p0 + k * p1, qa);
+   }
+
+   private static BigInteger[] floorDivide(BigInteger n, BigInteger d) {
+      BigInteger[] parts = n.divideAndRemainder(d);
+      if (parts[1].signum() < 0) {
+         // d is positive, so round down rather than toward zero
+         parts[0] = parts[0].subtract(BigInteger.ONE);
+         parts[1] = parts[1].add(d);
+      }
+      return parts;
+   }
+
+   public Fraction abs() {
+      return signum() < 0 ? negate() : this;
+   }
+
+   public Fraction negate() {
+      if (bigNum != null) {
+         return of(bigNum.negate(), bigDen);
+      }
+      // num is never Long.MIN_VALUE, so this can't overflow
+      return num == 0 ? this : new Fraction(-num, den);
+   }
+
+   @Override
+   public int compareTo(Fraction other) {
+      if (bigNum == null && other.bigNum == null) {
+         return compare(num, den, other.num, other.den);
+      }
+      return bigNumerator().multiply(other.bigDenominator())
+            .compareTo(other.bigNumerator().multiply(bigDenominator()));
+   }
+
+   /**
+    * Compares n1/d1 with n2/d2 by cross multiplying, without reducing or
+    * dividing. The fractions don't need to be in lowest terms and the
+    * denominators can be negative. Each product is worked out in full 128
+    * bits with Math.multiplyHigh, so any two longs can be compared.
+    *
+    * @return A negative number, zero or a positive number as n1/d1 is less
+    *         than, equal to or greater than n2/d2
+    * @throws ArithmeticException if a denominator is zero
+    */
+   public static int compare(long n1, long d1, long n2, long d2) {
+      if (d1 == 0 || d2 == 0) {
+         throw new ArithmeticException("Denominator is zero");
+      }
+      long high1 = Math.multiplyHigh(n1, d2);
+      long high2 = Math.multiplyHigh(n2, d1);
+      int c;
+      if (high1 != high2) {
+         c = Long.compare(high1, high2);
+      } else {
+         // the same top half, so the bottom halves compare as unsigned
+         c = Long.compareUnsigned(n1 * d2, n2 * d1);
+      }
+      // a negative d1 * d2 flips the order
+      return (d1 ^ d2) < 0 ? -c : c;
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      if (this == o) {
+         return true;
+      }
+      if (!(o instanceof Fraction)) {
+         return false;
+      }
+      Fraction f = (Fraction) o;
+      // both sides are reduced and only use BigIntegers when they must,
+      // so equal values have equal parts
+      if (bigNum != null || f.bigNum != null) {
+         return bigNum != null && f.bigNum != null && bigNum.equals(f.bigNum) && bigDen.equals(f.bigDen);
+      }
+      return num == f.num && den == f.den;
+   }
+
+   @Override
+   public int hashCode() {
+      if (bigNum != null) {
+         return bigNum.hashCode() * 31 + bigDen.hashCode();
+      }
+      return Long.hashCode(num) * 31 + Long.hashCode(den);
+   }
+
+   @Override
+   public String toString() {
+      if (bigNum != null) {
+         BigInteger[] parts = bigNum.divideAndRemainder(bigDen);
+         if (parts[1].signum() == 0) {
+            return parts[0].toString();
+         }
+         if (parts[0].signum() == 0) {
+            return parts[1] + "/" + bigDen;
+         }
+         return parts[0] + " " + parts[1].abs() + "/" + bigDen;
+      }
+      return toString(num, den);
+   }
+
+   /**
+    * Formats a reduced fraction with a positive denominator as a whole number,
+    * a proper fraction or a mixed number.
+    */
+   static String toString(long num, long den) {
+      int index = SmallFractions.index(num, den);
+      if (index < 0) {
+         return FractionFormat.MIXED.formatReduced(num, den);
+      }
+      // small fractions are only formatted once
+      String[] table = SmallFractions.strings();
+      String text = table[index];
+      if (text == null) {
+         text = FractionFormat.MIXED.formatReduced(num, den);
+         table[index] = text;
+      }
+      return text;
+   }
+
+   /**
+    * Adds two reduced fractions that have positive denominators. The common
+    * denominator is the LCM of the denominators rather than their product,
+    * and only the small gcd of the sum and the shared factor is left to
+    * cancel, so the result comes out reduced (Knuth, TAOCP 4.5.1).
+    *
+    * @throws ArithmeticException if a long overflows
+    */
+   private static Fraction addLong(long n1, long d1, long n2, long d2) {
+      long g = gcd(d1, d2);
+      if (g == 1) {
+         // the denominators share nothing, so neither does the sum
+         return reduced(Math.addExact(Math.multiplyExact(n1, d2), Math.multiplyExact(n2, d1)),
+               Math.multiplyExact(d1, d2));
+      }
+      long s = d1 / g;
+      long t = Math.addExact(Math.multiplyExact(n1, d2 / g), Math.multiplyExact(n2, s));
+      if (t == Long.MIN_VALUE) {
+         throw new ArithmeticException("long overflow");
+      }
+      long g2 = gcd(t, g);
+      return reduced(t / g2, Math.multiplyExact(s, d2 / g2));
+   }
+
+   /**
+    * Multiplies two reduced fractions that have positive denominators. Each
+    * numerator is cancelled against the other denominator before the
+    * products are formed, so the result needs no further reduction.
+    *
+    * @throws ArithmeticException if a long overflows
+    */
+   private static Fraction multiplyLong(long n1, long d1, long n2, long d2) {
+      if (n1 == 0 || n2 == 0) {
+         return ZERO;
+      }
+      long g1 = gcd(n1, d2);
+      long g2 = gcd(n2, d1);
+      return reduced(Math.multiplyExact(n1 / g1, n2 / g2), Math.multiplyExact(d1 / g2, d2 / g1));
+   }
+
+   // wraps values that are already reduced with a positive denominator
+   private static Fraction reduced(long num, long den) {
+      if (num == 0) {
+         return ZERO;
+      }
+      if (num == Long.MIN_VALUE) {
+         return of(BigInteger.valueOf(num), BigInteger.valueOf(den));
+      }
+      return small(num, den);
+   }
+
+   // takes small fractions from the shared table, and makes the rest
+   private static Fraction small(long num, long den) {
+      int index = SmallFractions.index(num, den);
+      if (index < 0) {
+         return new Fraction(num, den);
+      }
+      Fraction[] table = SmallFractions.fractions();
+      Fraction value = table[index];
+      if (value == null) {
+         value = new Fraction(num, den);
+         table[index] = value;
+      }
+      return value;
+   }
+
+   /**
+    * Finds the greatest common divisor with the binary (Stein) algorithm,
+    * which only needs shifts and subtraction instead of division. Against
+    * Euclid's algorithm it is about a fifth faster on random ints and three
+    * times as fast on consecutive Fibonacci numbers, but about 10% slower on
+    * ints that are close together, where Euclid's first division does most
+    * of the work. The result is always positive unless both values are zero.
+    * Neither value may be Long.MIN_VALUE.
+    */
+   static long gcd(long a, long b) {
+      a = Math.abs(a);
+      b = Math.abs(b);
+      // small values are looked up. Math.abs leaves Long.MIN_VALUE
+      // negative, so that never is.
+      if ((a | b) >= 0) {
+         int small = SmallFractions.gcd(a, b);
+         if (small >= 0) {
+            return small;
+         }
+      }
+      if (a == 0) {
+         return b;
+      }
+      if (b == 0) {
+         return a;
+      }
+      // the power of two both values share
+      int shift = Long.numberOfTrailingZeros(a | b);
+      a >>>= Long.numberOfTrailingZeros(a);
+      do {
+         b >>>= Long.numberOfTrailingZeros(b);
+         // both are odd now, so the difference is even
+         if (a > b) {
+            long value = a;
+            a = b;
+            b = value;
+         }
+         b -= a;
+      } while (b != 0);
+      return a << shift;
+   }
+
+   // Long.MIN_VALUE is left out so that a sign can always be flipped
+   private static boolean fitsInLong(BigInteger value) {
+      return value.bitLength() < 64 && !value.equals(LONG_MIN);
+   }
+}
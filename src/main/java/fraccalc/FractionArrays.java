@@ -0,0 +1,389 @@
+package fraccalc;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bulk fraction arithmetic over columns of primitives. A column of
+ * fractions is a pair of arrays, one with the numerators and one with the
+ * denominators, so millions of fractions can be handled without creating an
+ * object for each one.
+ * <p>
+ * The pairwise operations read fractions that are already in lowest terms
+ * with positive denominators, which is what they write as well. Columns
+ * from anywhere else can be put in that form with {@link #normalize}.
+ * <p>
+ * A result that can't be worked out in longs is not written. Its denominator
+ * is set to 0 instead, and the operation returns how many of those there were, so
+ * the caller can redo just those with {@link Fraction}. The loops have no
+ * exceptions or allocation in them, which keeps them simple for the JIT.
+ * <p>
+ * The work per element is mostly a GCD, which takes a different number of
+ * steps for every element, so the loops are written for the JIT rather than
+ * for SIMD instructions.
+ * <p>
+ * Columns can also be sorted by value with {@link #sort}, and repeated values
+ * removed from a sorted column with {@link #distinct}. Both compare with
+ * {@link Fraction#compare}, so they take any fractions, reduced or not.
+ */
+public final class FractionArrays {
+
+   // below this many elements a sort is done on one thread, the same
+   // granularity Arrays.parallelSort uses
+   private static final int PARALLEL_GRAIN = 1 << 13;
+   // runs this short are insertion sorted
+   private static final int INSERTION_SORT = 16;
+
+   private FractionArrays() {
+   }
+
+   /**
+    * Reduces every fraction in a column to lowest terms with a positive
+    * denominator, in place.
+    *
+    * @throws ArithmeticException if a denominator is zero, or a value is
+    *                             Long.MIN_VALUE
+    */
+   public static void normalize(long[] num, long[] den) {
+      checkLengths(num.length, den.length);
+      for (int i = 0; i < num.length; i++) {
+         long n = num[i];
+         long d = den[i];
+         if (d == 0) {
+            throw new ArithmeticException("Denominator is zero at index " + i);
+         }
+         if (n == Long.MIN_VALUE || d == Long.MIN_VALUE) {
+            throw new ArithmeticException("Long.MIN_VALUE at index " + i);
+         }
+         long g = Fraction.gcd(n, d);
+         if (d < 0) {
+            g = -g;
+         }
+         num[i] = n / g;
+         den[i] = d / g;
+      }
+   }
+
+   /**
+    * Adds two columns into a third. The output may be the same arrays as an
+    * input.
+    *
+    * @return The number of results that could not be worked out in longs
+    */
+   public static int add(long[] num1, long[] den1, long[] num2, long[] den2, long[] outNum, long[] outDen) {
+      int length = checkLengths(num1, den1, num2, den2, outNum, outDen);
+      int overflows = 0;
+      for (int i = 0; i < length; i++) {
+         if (!add(num1[i], den1[i], num2[i], den2[i], outNum, outDen, i)) {
+            overflows++;
+         }
+      }
+      return overflows;
+   }
+
+   /**
+    * Subtracts the second column from the first into a third. The output
+    * may be the same arrays as an input.
+    *
+    * @return The number of results that could not be worked out in longs
+    */
+   public static int subtract(long[] num1, long[] den1, long[] num2, long[] den2, long[] outNum, long[] outDen) {
+      int length = checkLengths(num1, den1, num2, den2, outNum, outDen);
+      int overflows = 0;
+      for (int i = 0; i < length; i++) {
+         // reduced numerators are never Long.MIN_VALUE, so this can't overflow
+         if (!add(num1[i], den1[i], -num2[i], den2[i], outNum, outDen, i)) {
+            overflows++;
+         }
+      }
+      return overflows;
+   }
+
+   /**
+    * Multiplies two columns into a third. The output may be the same arrays
+    * as an input.
+    *
+    * @return The number of results that could not be worked out in longs
+    */
+   public static int multiply(long[] num1, long[] den1, long[] num2, long[] den2, long[] outNum, long[] outDen) {
+      int length = checkLengths(num1, den1, num2, den2, outNum, outDen);
+      int overflows = 0;
+      for (int i = 0; i < length; i++) {
+         if (!multiply(num1[i], den1[i], num2[i], den2[i], outNum, outDen, i)) {
+            overflows++;
+         }
+      }
+      return overflows;
+   }
+
+   /**
+    * Divides the first column by the second into a third. The output may be
+    * the same arrays as an input.
+    *
+    * @return The number of results that could not be worked out in longs
+    * @throws ArithmeticException if a fraction in the second column is zero,
+    *                             in which case nothing is written
+    */
+   public static int divide(long[] num1, long[] den1, long[] num2, long[] den2, long[] outNum, long[] outDen) {
+      int length = checkLengths(num1, den1, num2, den2, outNum, outDen);
+      // the divisors are checked first, so the output is never left half
+      // written and the loop below has no exceptions in it
+      for (int i = 0; i < length; i++) {
+         if (num2[i] == 0) {
+            throw new ArithmeticException("Divide by zero at index " + i);
+         }
+      }
+      int overflows = 0;
+      for (int i = 0; i < length; i++) {
+         long n2 = num2[i];
+         // multiply by the reciprocal, with the sign moved to the numerator
+         long sign = n2 < 0 ? -1 : 1;
+         if (!multiply(num1[i], den1[i], sign * den2[i], sign * n2, outNum, outDen, i)) {
+            overflows++;
+         }
+      }
+      return overflows;
+   }
+
+   /**
+    * Adds up a whole column exactly. The fractions don't need to be reduced.
+    *
+    * @return The sum, which may be too big for a long
+    * @throws ArithmeticException if a denominator is zero
+    */
+   public static Fraction sum(long[] num, long[] den) {
+      checkLengths(num.length, den.length);
+      MutableFraction total = new MutableFraction();
+      for (int i = 0; i < num.length; i++) {
+         total.add(num[i], den[i]);
+      }
+      return total.toFraction();
+   }
+
+   /**
+    * Multiplies a whole column together exactly. The fractions don't need to
+    * be reduced.
+    *
+    * @return The product, which may be too big for a long
+    * @throws ArithmeticException if a denominator is zero
+    */
+   public static Fraction product(long[] num, long[] den) {
+      checkLengths(num.length, den.length);
+      MutableFraction total = new MutableFraction(1, 1);
+      for (int i = 0; i < num.length && total.signum() != 0; i++) {
+         total.multiply(num[i], den[i]);
+      }
+      return total.toFraction();
+   }
+
+   /**
+    * Sorts a column from the smallest value to the largest, moving each
+    * numerator and denominator together. The fractions don't need to be
+    * reduced, and equal values, such as 1/2 and 2/4, stay in the order they
+    * were in. Large columns are sorted on the common fork/join pool.
+    *
+    * @throws ArithmeticException if a denominator is zero
+    */
+   public static void sort(long[] num, long[] den) {
+      checkLengths(num.length, den.length);
+      for (int i = 0; i < den.length; i++) {
+         if (den[i] == 0) {
+            throw new ArithmeticException("Denominator is zero at index " + i);
+         }
+      }
+      if (num.length < 2) {
+         return;
+      }
+      // a merge sort that goes back and forth between the column and a copy
+      long[] numCopy = num.clone();
+      long[] denCopy = den.clone();
+      if (num.length > PARALLEL_GRAIN && ForkJoinPool.getCommonPoolParallelism() > 1) {
+         ForkJoinPool.commonPool().invoke(new Sort(numCopy, denCopy, num, den, 0, num.length));
+      } else {
+         mergeSort(numCopy, denCopy, num, den, 0, num.length);
+      }
+   }
+
+   /**
+    * Moves the first of each run of equal values in a sorted column to the
+    * front, in order. Equal values don't need to have the same parts, so 1/2
+    * and 2/4 count as one value.
+    *
+    * @return How many different values there are, which is how much of the
+    *         front of the column now holds them
+    * @throws ArithmeticException if a denominator is zero
+    */
+   public static int distinct(long[] num, long[] den) {
+      checkLengths(num.length, den.length);
+      if (num.length == 0) {
+         return 0;
+      }
+      int count = 1;
+      for (int i = 1; i < num.length; i++) {
+         if (Fraction.compare(num[i], den[i], num[count - 1], den[count - 1]) != 0) {
+            num[count] = num[i];
+            den[count] = den[i];
+            count++;
+         }
+      }
+      return count;
+   }
+
+   // sorts from..to into the out arrays, using the in arrays, which start
+   // with the same values, for the halves
+   private static void mergeSort(long[] inNum, long[] inDen, long[] outNum, long[] outDen, int from, int to) {
+      if (to - from <= INSERTION_SORT) {
+         insertionSort(outNum, outDen, from, to);
+         return;
+      }
+      int mid = (from + to) >>> 1;
+      mergeSort(outNum, outDen, inNum, inDen, from, mid);
+      mergeSort(outNum, outDen, inNum, inDen, mid, to);
+      merge(inNum, inDen, outNum, outDen, from, mid, to);
+   }
+
+   private static void insertionSort(long[] num, long[] den, int from, int to) {
+      for (int i = from + 1; i < to; i++) {
+         long n = num[i];
+         long d = den[i];
+         int j = i - 1;
+         while (j >= from && Fraction.compare(num[j], den[j], n, d) > 0) {
+            num[j + 1] = num[j];
+            den[j + 1] = den[j];
+            j--;
+         }
+         num[j + 1] = n;
+         den[j + 1] = d;
+      }
+   }
+
+   // merges the sorted runs from..mid and mid..to of the in arrays into the
+   // out arrays. Ties take the left side, which keeps the sort stable.
+   private static void merge(long[] inNum, long[] inDen, long[] outNum, long[] outDen, int from, int mid, int to) {
+      if (Fraction.compare(inNum[mid - 1], inDen[mid - 1], inNum[mid], inDen[mid]) <= 0) {
+         // already in order
+         System.arraycopy(inNum, from, outNum, from, to - from);
+         System.arraycopy(inDen, from, outDen, from, to - from);
+         return;
+      }
+      int left = from;
+      int right = mid;
+      for (int i = from; i < to; i++) {
+         if (right >= to || left < mid && Fraction.compare(inNum[left], inDen[left], inNum[right], inDen[right]) <= 0) {
+            outNum[i] = inNum[left];
+            outDen[i] = inDen[left++];
+         } else {
+            outNum[i] = inNum[right];
+            outDen[i] = inDen[right++];
+         }
+      }
+   }
+
+   // the parallel version of mergeSort, which sorts the two halves at once
+   private static final class Sort extends RecursiveAction {
+      private static final long serialVersionUID = 1L;
+
+      private final long[] inNum;
+      private final long[] inDen;
+      private final long[] outNum;
+      private final long[] outDen;
+      private final int from;
+      private final int to;
+
+      Sort(long[] inNum, long[] inDen, long[] outNum, long[] outDen, int from, int to) {
+         this.inNum = inNum;
+         this.inDen = inDen;
+         this.outNum = outNum;
+         this.outDen = outDen;
+         this.from = from;
+         this.to = to;
+      }
+
+      @Override
+      protected void compute() {
+         if (to - from <= PARALLEL_GRAIN) {
+            mergeSort(inNum, inDen, outNum, outDen, from, to);
+            return;
+         }
+         int mid = (from + to) >>> 1;
+         invokeAll(new Sort(outNum, outDen, inNum, inDen, from, mid),
+               new Sort(outNum, outDen, inNum, inDen, mid, to));
+         merge(inNum, inDen, outNum, outDen, from, mid, to);
+      }
+   }
+
+   // the same LCM based sum as Fraction, with overflow checks instead of
+   // exceptions. Returns false if the result doesn't fit.
+   private static boolean add(long n1, long d1, long n2, long d2, long[] outNum, long[] outDen, int i) {
+      long g = Fraction.gcd(d1, d2);
+      long s = d1 / g;
+      long t2 = d2 / g;
+      long a = n1 * t2;
+      long b = n2 * s;
+      long t = a + b;
+      long d = s * d2;
+      if (multiplyOverflows(n1, t2) || multiplyOverflows(n2, s) || multiplyOverflows(s, d2)
+            || ((a ^ t) & (b ^ t)) < 0 || t == Long.MIN_VALUE) {
+         return overflow(outNum, outDen, i);
+      }
+      if (g == 1) {
+         // the denominators share nothing, so neither does the sum
+         outNum[i] = t;
+         outDen[i] = t == 0 ? 1 : d;
+         return true;
+      }
+      long g2 = Fraction.gcd(t, g);
+      outNum[i] = t / g2;
+      outDen[i] = t == 0 ? 1 : d / g2;
+      return true;
+   }
+
+   // cancels across before multiplying, like Fraction. Returns false if the
+   // result doesn't fit.
+   private static boolean multiply(long n1, long d1, long n2, long d2, long[] outNum, long[] outDen, int i) {
+      if (n1 == 0 || n2 == 0) {
+         outNum[i] = 0;
+         outDen[i] = 1;
+         return true;
+      }
+      long g1 = Fraction.gcd(n1, d2);
+      long g2 = Fraction.gcd(n2, d1);
+      long a = n1 / g1;
+      long b = n2 / g2;
+      long c = d1 / g2;
+      long e = d2 / g1;
+      long n = a * b;
+      if (multiplyOverflows(a, b) || multiplyOverflows(c, e) || n == Long.MIN_VALUE) {
+         return overflow(outNum, outDen, i);
+      }
+      outNum[i] = n;
+      outDen[i] = c * e;
+      return true;
+   }
+
+   private static boolean overflow(long[] outNum, long[] outDen, int i) {
+      outNum[i] = 0;
+      outDen[i] = 0;
+      return false;
+   }
+
+   // true if a * b doesn't fit in a long. Math.multiplyHigh is an intrinsic,
+   // so this is cheaper than catching the exception from multiplyExact.
+   private static boolean multiplyOverflows(long a, long b) {
+      return Math.multiplyHigh(a, b) != (a * b) >> 63;
+   }
+
+   private static int checkLengths(long[]... arrays) {
+      int length = arrays[0].length;
+      for (long[] array : arrays) {
+         checkLengths(length, array.length);
+      }
+      return length;
+   }
+
+   private static void checkLengths(int expected, int actual) {
+      if (expected != actual) {
+         throw new IllegalArgumentException("Columns have different lengths: " + expected + " and " + actual);
+      }
+   }
+}
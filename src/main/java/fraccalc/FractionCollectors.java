@@ -0,0 +1,55 @@
+package fraccalc;
+
+import java.util.stream.Collector;
+
+/**
+ * Collectors that add up or multiply a stream of fractions exactly. Each one
+ * accumulates into a {@link MutableFraction} or {@link FractionStatistics},
+ * so no Fraction is made for each step, and the partial results of a
+ * parallel stream are merged at the end.
+ * <p>
+ * For example:
+ * <pre>
+ * Fraction total = fractions.parallelStream().collect(FractionCollectors.summing());
+ * </pre>
+ */
+public final class FractionCollectors {
+
+   private FractionCollectors() {
+   }
+
+   /**
+    * @return A collector for the sum of the fractions, which is zero for
+    *         an empty stream
+    */
+   public static Collector<Fraction, ?, Fraction> summing() {
+      return Collector.of(MutableFraction::new, MutableFraction::add, MutableFraction::add,
+            MutableFraction::toFraction, Collector.Characteristics.UNORDERED);
+   }
+
+   /**
+    * @return A collector for the product of the fractions, which is one for
+    *         an empty stream
+    */
+   public static Collector<Fraction, ?, Fraction> multiplying() {
+      return Collector.of(() -> new MutableFraction(1, 1), MutableFraction::multiply, MutableFraction::multiply,
+            MutableFraction::toFraction, Collector.Characteristics.UNORDERED);
+   }
+
+   /**
+    * @return A collector for the mean of the fractions, which is zero for an
+    *         empty stream
+    */
+   public static Collector<Fraction, ?, Fraction> averaging() {
+      return Collector.of(FractionStatistics::new, FractionStatistics::accept, FractionStatistics::combine,
+            FractionStatistics::getAverage, Collector.Characteristics.UNORDERED);
+   }
+
+   /**
+    * @return A collector for the count, sum and mean of the fractions
+    */
+   public static Collector<Fraction, ?, FractionStatistics> summarizing() {
+      return Collector.of(FractionStatistics::new, FractionStatistics::accept, FractionStatistics::combine,
+            Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+   }
+}
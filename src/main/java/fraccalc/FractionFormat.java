@@ -0,0 +1,353 @@
+package fraccalc;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes fractions as text straight into a byte array, StringBuilder or
+ * CharBuffer that the caller owns, digit by digit, so no Strings are made
+ * along the way. There are three forms:
+ * <ul>
+ * <li>{@link #MIXED}, the form FracCalc has always printed, such as 5, 3/4
+ * or -1 1/2. For any numerator and denominator it gives exactly what
+ * FracCalc.simplify gives, including the signs that simplify and
+ * SimplifyNegative leave on a negative denominator.</li>
+ * <li>{@link #IMPROPER}, such as 5, 3/4 or -3/2, with the sign always on the
+ * numerator.</li>
+ * <li>{@link #decimal(int)}, such as 0.75 or -0.333333, rounded half up to a
+ * number of places, with no trailing zeros.</li>
+ * </ul>
+ * All of the text is ASCII, so the byte form is also valid UTF-8. The long
+ * versions reduce the fraction first and don't accept Long.MIN_VALUE, which
+ * a Fraction never holds.
+ * <p>
+ * The other forms write the digits into a byte array kept for each thread
+ * and then copy them across, so writing into a StringBuilder or CharBuffer
+ * doesn't allocate either.
+ */
+public final class FractionFormat {
+
+   private enum Style {
+      MIXED, IMPROPER, DECIMAL
+   }
+
+   public static final FractionFormat MIXED = new FractionFormat(Style.MIXED, 0);
+   public static final FractionFormat IMPROPER = new FractionFormat(Style.IMPROPER, 0);
+
+   // the most digits a positive long can have
+   private static final int LONG_DIGITS = 19;
+   // a sign, two longs and two separators, such as -9 -9/-9 with long numbers
+   private static final int MAX_FRACTION_LENGTH = 64;
+   private static final int MAX_PLACES = 1000;
+
+   // the working space for the forms that don't write into a byte array,
+   // grown when a decimal format needs more
+   private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[MAX_FRACTION_LENGTH]);
+
+   private final Style style;
+   private final int places;
+
+   private FractionFormat(Style style, int places) {
+      this.style = style;
+      this.places = places;
+   }
+
+   /**
+    * @param places The number of places after the decimal point to round to
+    * @return A format for decimals
+    */
+   public static FractionFormat decimal(int places) {
+      if (places < 0 || places > MAX_PLACES) {
+         throw new IllegalArgumentException("Decimal places must be from 0 to " + MAX_PLACES);
+      }
+      return new FractionFormat(Style.DECIMAL, places);
+   }
+
+   /**
+    * @return The most bytes this format writes for a fraction of longs
+    */
+   public int maxLength() {
+      return style == Style.DECIMAL ? LONG_DIGITS + places + 2 : MAX_FRACTION_LENGTH;
+   }
+
+   /**
+    * Writes num/den into a byte array, which needs room for
+    * {@link #maxLength()} bytes from the offset.
+    *
+    * @return The offset just after the text
+    * @throws ArithmeticException if den is zero or either is Long.MIN_VALUE
+    */
+   public int format(long num, long den, byte[] out, int offset) {
+      if (den == 0) {
+         throw new ArithmeticException("Denominator is zero");
+      }
+      if (num == Long.MIN_VALUE || den == Long.MIN_VALUE) {
+         throw new ArithmeticException("Long.MIN_VALUE can't be formatted");
+      }
+      long g = Fraction.gcd(num, den);
+      return formatReduced(num / g, den / g, out, offset);
+   }
+
+   public StringBuilder format(long num, long den, StringBuilder out) {
+      byte[] text = scratch();
+      return append(text, format(num, den, text, 0), out);
+   }
+
+   public CharBuffer format(long num, long den, CharBuffer out) {
+      byte[] text = scratch();
+      return put(text, format(num, den, text, 0), out);
+   }
+
+   public String format(long num, long den) {
+      byte[] text = scratch();
+      return toString(text, format(num, den, text, 0));
+   }
+
+   /**
+    * Writes a fraction that is already in lowest terms, such as the parts of
+    * a Fraction, without working out the GCD again.
+    */
+   int formatReduced(long num, long den, byte[] out, int offset) {
+      if (style == Style.MIXED) {
+         return writeMixed(num, den, out, offset);
+      } else if (style == Style.IMPROPER) {
+         return writeImproper(num, den, out, offset);
+      }
+      return writeDecimal(num, den, out, offset);
+   }
+
+   String formatReduced(long num, long den) {
+      byte[] text = scratch();
+      return toString(text, formatReduced(num, den, text, 0));
+   }
+
+   /**
+    * Writes a fraction into a byte array. A fraction too big for longs is
+    * written from its BigIntegers and can be longer than
+    * {@link #maxLength()}.
+    *
+    * @return The offset just after the text
+    */
+   public int format(Fraction value, byte[] out, int offset) {
+      if (value.fitsInLong()) {
+         return formatReduced(value.numerator(), value.denominator(), out, offset);
+      }
+      String text = formatBig(value);
+      for (int i = 0; i < text.length(); i++) {
+         out[offset++] = (byte) text.charAt(i);
+      }
+      return offset;
+   }
+
+   public StringBuilder format(Fraction value, StringBuilder out) {
+      if (value.fitsInLong()) {
+         byte[] text = scratch();
+         return append(text, formatReduced(value.numerator(), value.denominator(), text, 0), out);
+      }
+      return out.append(formatBig(value));
+   }
+
+   public CharBuffer format(Fraction value, CharBuffer out) {
+      if (value.fitsInLong()) {
+         byte[] text = scratch();
+         return put(text, formatReduced(value.numerator(), value.denominator(), text, 0), out);
+      }
+      return out.put(formatBig(value));
+   }
+
+   public String format(Fraction value) {
+      if (value.fitsInLong()) {
+         return formatReduced(value.numerator(), value.denominator());
+      }
+      return formatBig(value);
+   }
+
+   private byte[] scratch() {
+      byte[] text = SCRATCH.get();
+      if (text.length < maxLength()) {
+         text = new byte[maxLength()];
+         SCRATCH.set(text);
+      }
+      return text;
+   }
+
+   private static StringBuilder append(byte[] text, int length, StringBuilder out) {
+      for (int i = 0; i < length; i++) {
+         out.append((char) text[i]);
+      }
+      return out;
+   }
+
+   private static CharBuffer put(byte[] text, int length, CharBuffer out) {
+      for (int i = 0; i < length; i++) {
+         out.put((char) text[i]);
+      }
+      return out;
+   }
+
+   private static String toString(byte[] text, int length) {
+      // Latin-1 bytes are copied straight into the String
+      return new String(text, 0, length, StandardCharsets.ISO_8859_1);
+   }
+
+   // the same cases as FracCalc.simplify, on a reduced fraction
+   private static int writeMixed(long num, long den, byte[] out, int pos) {
+      long whole = num / den;
+      long rest = num % den;
+      if (rest == 0) {
+         return writeSigned(whole, out, pos);
+      }
+      if (whole == 0) {
+         // like SimplifyNegative, a negative denominator moves its sign to
+         // the numerator, and two negatives cancel
+         if (den < 0) {
+            if (rest > 0) {
+               out[pos++] = '-';
+            }
+            pos = writeDigits(Math.abs(rest), out, pos);
+         } else {
+            pos = writeSigned(rest, out, pos);
+         }
+         out[pos++] = '/';
+         return writeDigits(Math.abs(den), out, pos);
+      }
+      pos = writeSigned(whole, out, pos);
+      out[pos++] = ' ';
+      if (whole < 0 && rest < 0) {
+         pos = writeDigits(-rest, out, pos);
+         out[pos++] = '/';
+         return writeSigned(den, out, pos);
+      } else if (whole < 0 && den < 0) {
+         pos = writeSigned(rest, out, pos);
+         out[pos++] = '/';
+         return writeDigits(-den, out, pos);
+      }
+      // otherwise the signs are written as they are, as simplify does
+      pos = writeSigned(rest, out, pos);
+      out[pos++] = '/';
+      return writeSigned(den, out, pos);
+   }
+
+   private static int writeImproper(long num, long den, byte[] out, int pos) {
+      if ((num < 0) != (den < 0) && num != 0) {
+         out[pos++] = '-';
+      }
+      pos = writeDigits(Math.abs(num), out, pos);
+      if (den != 1 && den != -1) {
+         out[pos++] = '/';
+         pos = writeDigits(Math.abs(den), out, pos);
+      }
+      return pos;
+   }
+
+   private int writeDecimal(long num, long den, byte[] out, int pos) {
+      boolean negative = (num < 0) != (den < 0);
+      long whole = Math.abs(num / den);
+      long rest = Math.abs(num % den);
+      den = Math.abs(den);
+
+      // the digits after the point go straight into the output, after
+      // room for the whole number, and are moved up once that is known
+      int start = pos + LONG_DIGITS + 2;
+      int end = start;
+      for (int i = 0; i < places && rest != 0; i++) {
+         out[end++] = (byte) ('0' + nextDigit(rest, den));
+         rest = timesTenMod(rest, den);
+      }
+      // round half up on the next digit
+      if (rest != 0 && nextDigit(rest, den) >= 5) {
+         int i = end - 1;
+         while (i >= start && out[i] == '9') {
+            out[i--] = '0';
+         }
+         if (i >= start) {
+            out[i]++;
+         } else {
+            whole++;
+         }
+      }
+      while (end > start && out[end - 1] == '0') {
+         end--;
+      }
+
+      if (negative && (whole != 0 || end > start)) {
+         out[pos++] = '-';
+      }
+      pos = writeDigits(whole, out, pos);
+      if (end > start) {
+         out[pos++] = '.';
+         System.arraycopy(out, start, out, pos, end - start);
+         pos += end - start;
+      }
+      return pos;
+   }
+
+   // the first decimal digit of rest/den, where 0 <= rest < den
+   private static int nextDigit(long rest, long den) {
+      if (rest <= Long.MAX_VALUE / 10) {
+         return (int) (rest * 10 / den);
+      }
+      // rest * 10 doesn't fit, so add it up ten times, taking off den
+      // each time the sum passes it
+      int digit = 0;
+      long sum = 0;
+      for (int i = 0; i < 10; i++) {
+         if (rest >= den - sum) {
+            sum = rest - (den - sum);
+            digit++;
+         } else {
+            sum += rest;
+         }
+      }
+      return digit;
+   }
+
+   // rest * 10 % den, where 0 <= rest < den
+   private static long timesTenMod(long rest, long den) {
+      if (rest <= Long.MAX_VALUE / 10) {
+         return rest * 10 % den;
+      }
+      long sum = 0;
+      for (int i = 0; i < 10; i++) {
+         sum = rest >= den - sum ? rest - (den - sum) : sum + rest;
+      }
+      return sum;
+   }
+
+   private String formatBig(Fraction value) {
+      BigInteger num = value.bigNumerator();
+      BigInteger den = value.bigDenominator();
+      if (style == Style.MIXED) {
+         return value.toString();
+      } else if (style == Style.IMPROPER) {
+         return den.equals(BigInteger.ONE) ? num.toString() : num + "/" + den;
+      }
+      BigDecimal decimal = new BigDecimal(num).divide(new BigDecimal(den), places, RoundingMode.HALF_UP);
+      return decimal.stripTrailingZeros().toPlainString();
+   }
+
+   private static int writeSigned(long value, byte[] out, int pos) {
+      if (value < 0) {
+         out[pos++] = '-';
+         value = -value;
+      }
+      return writeDigits(value, out, pos);
+   }
+
+   // writes a value that is not negative
+   private static int writeDigits(long value, byte[] out, int pos) {
+      int length = 1;
+      for (long power = 10; length < LONG_DIGITS && value >= power; power *= 10) {
+         length++;
+      }
+      int end = pos + length;
+      for (int i = end - 1; i >= pos; i--) {
+         out[i] = (byte) ('0' + value % 10);
+         value /= 10;
+      }
+      return end;
+   }
+}
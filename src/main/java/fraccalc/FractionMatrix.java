@@ -0,0 +1,464 @@
+package fraccalc;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable matrix of exact fractions, for multiplying matrices, finding
+ * determinants and inverses, and solving linear systems.
+ * <p>
+ * The cells are kept row by row in two arrays of longs, one of numerators
+ * and one of denominators, in lowest terms with positive denominators. Only
+ * a matrix with a cell too big for longs keeps Fraction objects instead.
+ * <p>
+ * Elimination is fraction-free (Bareiss). Each row is first multiplied by
+ * the LCM of its denominators, which doesn't change what solves it, so
+ * every entry is a whole number. Each step then works out
+ * (pivot * entry - factor * pivot row entry) / previous pivot, a division
+ * that is always exact. The entries stay the size of minors of the matrix
+ * instead of growing with every step, and there is no GCD anywhere until
+ * the answers are divided out at the end. Solving uses the Gauss-Jordan
+ * form of the same step, so no back substitution is needed.
+ * <p>
+ * The arithmetic is done in longs while it fits, and redone with
+ * BigIntegers from the start when something overflows. The rows of a step
+ * don't depend on each other, so for large matrices each step updates its
+ * rows in parallel on the common pool, as do the rows of a product.
+ */
+public final class FractionMatrix {
+
+   // below this many entries a step, or a product, is done on one thread
+   private static final int PARALLEL_GRAIN = 1 << 13;
+
+   private final int rows;
+   private final int columns;
+   // row by row. Null when a cell doesn't fit in a long.
+   private final long[] num;
+   private final long[] den;
+   // only set when num is null
+   private final Fraction[] cells;
+
+   private FractionMatrix(int rows, int columns, long[] num, long[] den, Fraction[] cells) {
+      this.rows = rows;
+      this.columns = columns;
+      this.num = num;
+      this.den = den;
+      this.cells = cells;
+   }
+
+   /**
+    * @param values The rows, which must all be the same length
+    * @throws IllegalArgumentException if there are no cells or the rows are
+    *                                  different lengths
+    */
+   public static FractionMatrix of(Fraction[][] values) {
+      if (values.length == 0 || values[0].length == 0) {
+         throw new IllegalArgumentException("A matrix needs at least one number");
+      }
+      int columns = values[0].length;
+      Fraction[] cells = new Fraction[values.length * columns];
+      for (int i = 0; i < values.length; i++) {
+         if (values[i].length != columns) {
+            throw new IllegalArgumentException("Row " + (i + 1) + " has " + values[i].length + " numbers but row 1 has "
+                  + columns);
+         }
+         System.arraycopy(values[i], 0, cells, i * columns, columns);
+      }
+      return of(values.length, columns, cells);
+   }
+
+   /**
+    * @return The n by n matrix with ones on the diagonal
+    */
+   public static FractionMatrix identity(int n) {
+      long[] num = new long[n * n];
+      long[] den = new long[n * n];
+      Arrays.fill(den, 1);
+      for (int i = 0; i < n; i++) {
+         num[i * n + i] = 1;
+      }
+      return new FractionMatrix(n, n, num, den, null);
+   }
+
+   // keeps the cells in longs if they all fit
+   private static FractionMatrix of(int rows, int columns, Fraction[] cells) {
+      for (Fraction cell : cells) {
+         if (!cell.fitsInLong()) {
+            return new FractionMatrix(rows, columns, null, null, cells);
+         }
+      }
+      long[] num = new long[cells.length];
+      long[] den = new long[cells.length];
+      for (int i = 0; i < cells.length; i++) {
+         num[i] = cells[i].numerator();
+         den[i] = cells[i].denominator();
+      }
+      return new FractionMatrix(rows, columns, num, den, null);
+   }
+
+   public int rows() {
+      return rows;
+   }
+
+   public int columns() {
+      return columns;
+   }
+
+   public Fraction get(int row, int column) {
+      if (row < 0 || row >= rows || column < 0 || column >= columns) {
+         throw new IndexOutOfBoundsException("No cell " + row + ", " + column + " in a " + rows + " by " + columns
+               + " matrix");
+      }
+      int index = row * columns + column;
+      return num != null ? Fraction.of(num[index], den[index]) : cells[index];
+   }
+
+   /**
+    * @return this * other
+    * @throws IllegalArgumentException if this doesn't have as many columns
+    *                                  as other has rows
+    */
+   public FractionMatrix multiply(FractionMatrix other) {
+      if (columns != other.rows) {
+         throw new IllegalArgumentException("Can't multiply a " + rows + " by " + columns + " matrix by a "
+               + other.rows + " by " + other.columns + " matrix");
+      }
+      Fraction[] product = new Fraction[rows * other.columns];
+      // each cell is a row of this times a column of other. With the rows
+      // and columns scaled to whole numbers, that is one dot product of
+      // integers and one division.
+      boolean parallel = (long) rows * other.columns * columns >= PARALLEL_GRAIN;
+      try {
+         long[] rowScales = new long[rows];
+         long[][] left = wholeRows(this, null, rowScales);
+         long[] columnScales = new long[other.columns];
+         long[][] right = wholeRows(other.transpose(), null, columnScales);
+         forEachRow(0, rows, parallel, i -> {
+            for (int j = 0; j < right.length; j++) {
+               long sum = 0;
+               for (int k = 0; k < columns; k++) {
+                  sum = Math.addExact(sum, Math.multiplyExact(left[i][k], right[j][k]));
+               }
+               product[i * right.length + j] = Fraction.of(sum, Math.multiplyExact(rowScales[i], columnScales[j]));
+            }
+         });
+      } catch (ArithmeticException e) {
+         // overflow, so redo it with BigIntegers
+         BigInteger[] rowScales = new BigInteger[rows];
+         BigInteger[][] left = bigWholeRows(this, null, rowScales);
+         BigInteger[] columnScales = new BigInteger[other.columns];
+         BigInteger[][] right = bigWholeRows(other.transpose(), null, columnScales);
+         forEachRow(0, rows, parallel, i -> {
+            for (int j = 0; j < right.length; j++) {
+               BigInteger sum = BigInteger.ZERO;
+               for (int k = 0; k < columns; k++) {
+                  sum = sum.add(left[i][k].multiply(right[j][k]));
+               }
+               product[i * right.length + j] = Fraction.of(sum, rowScales[i].multiply(columnScales[j]));
+            }
+         });
+      }
+      return of(rows, other.columns, product);
+   }
+
+   /**
+    * @throws IllegalArgumentException if the matrix isn't square
+    */
+   public Fraction determinant() {
+      checkSquare();
+      // the rows were scaled up, so the determinant is scaled back down
+      try {
+         long[] scales = new long[rows];
+         long[][] m = wholeRows(this, null, scales);
+         Fraction determinant = Fraction.of(eliminate(m, rows, false));
+         for (int i = 0; i < rows && determinant.signum() != 0; i++) {
+            determinant = determinant.divide(Fraction.of(scales[i]));
+         }
+         return determinant;
+      } catch (ArithmeticException e) {
+         BigInteger[] scales = new BigInteger[rows];
+         BigInteger[][] m = bigWholeRows(this, null, scales);
+         BigInteger scale = BigInteger.ONE;
+         for (BigInteger rowScale : scales) {
+            scale = scale.multiply(rowScale);
+         }
+         return Fraction.of(eliminate(m, rows, false), scale);
+      }
+   }
+
+   /**
+    * @return The matrix that this multiplied by gives the identity
+    * @throws IllegalArgumentException if the matrix isn't square
+    * @throws ArithmeticException      if the matrix is singular
+    */
+   public FractionMatrix inverse() {
+      checkSquare();
+      return solve(identity(rows));
+   }
+
+   /**
+    * Solves this * x = b for x.
+    *
+    * @param b The right hand side, with a column for each system to solve
+    * @return x, with as many rows as this has columns and as many columns
+    *         as b
+    * @throws IllegalArgumentException if the matrix isn't square, or b has a
+    *                                  different number of rows
+    * @throws ArithmeticException      if the matrix is singular
+    */
+   public FractionMatrix solve(FractionMatrix b) {
+      checkSquare();
+      if (b.rows != rows) {
+         throw new IllegalArgumentException("The right hand side has " + b.rows + " rows but the matrix has " + rows);
+      }
+      Fraction[] x;
+      try {
+         x = solveLong(b);
+      } catch (ArithmeticException e) {
+         // overflow, so redo it with BigIntegers
+         x = solveBig(b);
+      }
+      if (x == null) {
+         throw new ArithmeticException("The matrix is singular");
+      }
+      return of(rows, b.columns, x);
+   }
+
+   // solve in longs, or null if the matrix is singular
+   private Fraction[] solveLong(FractionMatrix b) {
+      int n = rows;
+      long[][] m = wholeRows(this, b, new long[n]);
+      if (eliminate(m, n, true) == 0) {
+         return null;
+      }
+      // every row is now the last pivot times x on the right hand side
+      long last = m[n - 1][n - 1];
+      Fraction[] x = new Fraction[n * b.columns];
+      for (int i = 0; i < n; i++) {
+         for (int j = 0; j < b.columns; j++) {
+            x[i * b.columns + j] = Fraction.of(m[i][n + j], last);
+         }
+      }
+      return x;
+   }
+
+   private Fraction[] solveBig(FractionMatrix b) {
+      int n = rows;
+      BigInteger[][] m = bigWholeRows(this, b, new BigInteger[n]);
+      if (eliminate(m, n, true).signum() == 0) {
+         return null;
+      }
+      BigInteger last = m[n - 1][n - 1];
+      Fraction[] x = new Fraction[n * b.columns];
+      for (int i = 0; i < n; i++) {
+         for (int j = 0; j < b.columns; j++) {
+            x[i * b.columns + j] = Fraction.of(m[i][n + j], last);
+         }
+      }
+      return x;
+   }
+
+   public FractionMatrix transpose() {
+      Fraction[] transposed = num != null ? null : new Fraction[cells.length];
+      long[] tNum = num != null ? new long[num.length] : null;
+      long[] tDen = num != null ? new long[num.length] : null;
+      for (int i = 0; i < rows; i++) {
+         for (int j = 0; j < columns; j++) {
+            int from = i * columns + j;
+            int to = j * rows + i;
+            if (num != null) {
+               tNum[to] = num[from];
+               tDen[to] = den[from];
+            } else {
+               transposed[to] = cells[from];
+            }
+         }
+      }
+      return new FractionMatrix(columns, rows, tNum, tDen, transposed);
+   }
+
+   /**
+    * @return The rows on separate lines, with the cells separated by commas
+    *         as the sort command prints them
+    */
+   @Override
+   public String toString() {
+      StringBuilder text = new StringBuilder();
+      for (int i = 0; i < rows; i++) {
+         if (i > 0) {
+            text.append('\n');
+         }
+         for (int j = 0; j < columns; j++) {
+            if (j > 0) {
+               text.append(", ");
+            }
+            text.append(get(i, j));
+         }
+      }
+      return text.toString();
+   }
+
+   private void checkSquare() {
+      if (rows != columns) {
+         throw new IllegalArgumentException("The matrix is " + rows + " by " + columns + ", not square");
+      }
+   }
+
+   // [a | b] with each row multiplied by the LCM of its denominators, which
+   // go in scales
+   private static long[][] wholeRows(FractionMatrix a, FractionMatrix b, long[] scales) {
+      if (a.num == null || b != null && b.num == null) {
+         throw new ArithmeticException("long overflow");
+      }
+      int width = a.columns + (b == null ? 0 : b.columns);
+      long[][] m = new long[a.rows][width];
+      for (int i = 0; i < a.rows; i++) {
+         long scale = 1;
+         for (int j = 0; j < a.columns; j++) {
+            scale = lcm(scale, a.den[i * a.columns + j]);
+         }
+         for (int j = 0; b != null && j < b.columns; j++) {
+            scale = lcm(scale, b.den[i * b.columns + j]);
+         }
+         for (int j = 0; j < a.columns; j++) {
+            int index = i * a.columns + j;
+            m[i][j] = Math.multiplyExact(a.num[index], scale / a.den[index]);
+         }
+         for (int j = 0; b != null && j < b.columns; j++) {
+            int index = i * b.columns + j;
+            m[i][a.columns + j] = Math.multiplyExact(b.num[index], scale / b.den[index]);
+         }
+         scales[i] = scale;
+      }
+      return m;
+   }
+
+   private static BigInteger[][] bigWholeRows(FractionMatrix a, FractionMatrix b, BigInteger[] scales) {
+      int width = a.columns + (b == null ? 0 : b.columns);
+      BigInteger[][] m = new BigInteger[a.rows][width];
+      for (int i = 0; i < a.rows; i++) {
+         Fraction[] row = new Fraction[width];
+         for (int j = 0; j < width; j++) {
+            row[j] = j < a.columns ? a.get(i, j) : b.get(i, j - a.columns);
+         }
+         BigInteger scale = BigInteger.ONE;
+         for (Fraction cell : row) {
+            BigInteger d = cell.bigDenominator();
+            scale = scale.divide(scale.gcd(d)).multiply(d);
+         }
+         for (int j = 0; j < width; j++) {
+            m[i][j] = row[j].bigNumerator().multiply(scale.divide(row[j].bigDenominator()));
+         }
+         scales[i] = scale;
+      }
+      return m;
+   }
+
+   private static long lcm(long a, long b) {
+      return Math.multiplyExact(a / Fraction.gcd(a, b), b);
+   }
+
+   /**
+    * Bareiss elimination on the first n columns of m, in place. Without
+    * jordan only the rows below each pivot are cleared, which leaves an
+    * upper triangle; with it the rows above are too, which leaves every
+    * row as the last pivot times the solution on the right of column n.
+    *
+    * @return The determinant of the first n columns, or 0 if they are
+    *         singular, in which case m is left part way through
+    * @throws ArithmeticException if a long overflows
+    */
+   private static long eliminate(long[][] m, int n, boolean jordan) {
+      int width = m[0].length;
+      long previous = 1;
+      int sign = 1;
+      for (int k = 0; k < n; k++) {
+         // a zero pivot is swapped for a row below it, which flips the
+         // sign of the determinant
+         int swap = k;
+         while (swap < n && m[swap][k] == 0) {
+            swap++;
+         }
+         if (swap == n) {
+            return 0;
+         }
+         if (swap != k) {
+            long[] row = m[k];
+            m[k] = m[swap];
+            m[swap] = row;
+            sign = -sign;
+         }
+         long[] pivotRow = m[k];
+         long pivot = pivotRow[k];
+         long divisor = previous;
+         int k0 = k;
+         boolean parallel = (long) n * (width - k) >= PARALLEL_GRAIN;
+         forEachRow(jordan ? 0 : k + 1, n, parallel, i -> {
+            if (i == k0) {
+               return;
+            }
+            long[] row = m[i];
+            long factor = row[k0];
+            // the division is exact, as the result is a minor of m
+            for (int j = k0 + 1; j < width; j++) {
+               row[j] = Math.subtractExact(Math.multiplyExact(pivot, row[j]), Math.multiplyExact(factor, pivotRow[j]))
+                     / divisor;
+            }
+            row[k0] = 0;
+         });
+         previous = pivot;
+      }
+      return sign * previous;
+   }
+
+   private static BigInteger eliminate(BigInteger[][] m, int n, boolean jordan) {
+      int width = m[0].length;
+      BigInteger previous = BigInteger.ONE;
+      int sign = 1;
+      for (int k = 0; k < n; k++) {
+         int swap = k;
+         while (swap < n && m[swap][k].signum() == 0) {
+            swap++;
+         }
+         if (swap == n) {
+            return BigInteger.ZERO;
+         }
+         if (swap != k) {
+            BigInteger[] row = m[k];
+            m[k] = m[swap];
+            m[swap] = row;
+            sign = -sign;
+         }
+         BigInteger[] pivotRow = m[k];
+         BigInteger pivot = pivotRow[k];
+         BigInteger divisor = previous;
+         int k0 = k;
+         boolean parallel = (long) n * (width - k) >= PARALLEL_GRAIN;
+         forEachRow(jordan ? 0 : k + 1, n, parallel, i -> {
+            if (i == k0) {
+               return;
+            }
+            BigInteger[] row = m[i];
+            BigInteger factor = row[k0];
+            for (int j = k0 + 1; j < width; j++) {
+               row[j] = pivot.multiply(row[j]).subtract(factor.multiply(pivotRow[j])).divide(divisor);
+            }
+            row[k0] = BigInteger.ZERO;
+         });
+         previous = pivot;
+      }
+      return sign < 0 ? previous.negate() : previous;
+   }
+
+   private static void forEachRow(int from, int to, boolean parallel, IntConsumer action) {
+      if (parallel) {
+         IntStream.range(from, to).parallel().forEach(action);
+      } else {
+         for (int i = from; i < to; i++) {
+            action.accept(i);
+         }
+      }
+   }
+}
@@ -0,0 +1,73 @@
+package fraccalc;
+
+import java.util.function.Consumer;
+
+/**
+ * Keeps an exact count, sum and mean of fractions, in the spirit of
+ * LongSummaryStatistics. The running total is a {@link MutableFraction}, so
+ * it stays in lowest terms over the LCM of the denominators and only falls
+ * back to BigIntegers when it has to.
+ * <p>
+ * Partial statistics kept on different threads can be merged with
+ * {@link #combine}, which is what lets a parallel stream use this as its
+ * container. See {@link FractionCollectors#summarizing()}.
+ * <p>
+ * This class is not thread safe.
+ */
+public final class FractionStatistics implements Consumer<Fraction> {
+
+   private final MutableFraction sum = new MutableFraction();
+   private long count;
+
+   @Override
+   public void accept(Fraction value) {
+      sum.add(value);
+      count++;
+   }
+
+   /**
+    * Adds num/den without making a Fraction for it. The fraction doesn't
+    * need to be reduced.
+    *
+    * @throws ArithmeticException if den is zero
+    */
+   public void accept(long num, long den) {
+      sum.add(num, den);
+      count++;
+   }
+
+   /**
+    * Adds everything another set of statistics has seen to this one. The
+    * other one is not changed.
+    *
+    * @return this
+    */
+   public FractionStatistics combine(FractionStatistics other) {
+      sum.add(other.sum);
+      count += other.count;
+      return this;
+   }
+
+   public long getCount() {
+      return count;
+   }
+
+   public Fraction getSum() {
+      return sum.toFraction();
+   }
+
+   /**
+    * @return The exact mean, or zero if nothing has been added
+    */
+   public Fraction getAverage() {
+      if (count == 0) {
+         return Fraction.ZERO;
+      }
+      return sum.toFraction().divide(Fraction.of(count));
+   }
+
+   @Override
+   public String toString() {
+      return "FractionStatistics{count=" + count + ", sum=" + sum + ", average=" + getAverage() + "}";
+   }
+}
@@ -0,0 +1,300 @@
+package fraccalc;
+
+/**
+ * Reads the tokens of a fraction expression in a single pass. The numbers in
+ * an operand such as -5_3/4 are read straight into longs, so no substrings or
+ * boxed values are created, and a tokenizer can be reset and reused for the
+ * next line.
+ * <p>
+ * Problems are not thrown as exceptions. Instead {@link #next()} returns
+ * {@link Token#ERROR} and {@link #error()} and {@link #tokenStart()} say what
+ * went wrong and where.
+ * <p>
+ * A minus sign is read as part of an operand when an operand is expected,
+ * and as subtraction after an operand or a closing parenthesis. A slash
+ * between digits is the fraction bar, so division needs a space or other
+ * separator. Names such as x or rate1 are read as variables.
+ * <p>
+ * Two inputs mean something different to LegacyFracCalc, the calculator
+ * this replaced, and the new meanings are intended:
+ * <ul>
+ * <li>The minus sign applies to the whole operand, so -0_3/4 is -3/4. The
+ * old parser took the sign from the whole part, and as -0 is 0 it read
+ * +3/4.</li>
+ * <li>A slash with a space after it is division, so 3/ 4 is 3 divided by 4.
+ * The old parser split on spaces and couldn't read 3/ as a number.</li>
+ * </ul>
+ */
+public final class FractionTokenizer {
+
+   public enum Token {
+      OPERAND, OPERATOR, VARIABLE, OPEN, CLOSE, END, ERROR
+   }
+
+   private CharSequence text;
+   private int pos;
+   private int end;
+   private boolean expectOperand;
+
+   // details about the current token
+   private Token token;
+   private int tokenStart;
+   private boolean negative;
+   private long whole;
+   private long numerator;
+   private long denominator;
+   private char operator;
+   private String error;
+
+   public FractionTokenizer() {
+      reset("");
+   }
+
+   public FractionTokenizer(CharSequence text) {
+      reset(text);
+   }
+
+   public FractionTokenizer reset(CharSequence text) {
+      return reset(text, 0, text.length());
+   }
+
+   /**
+    * Starts reading a new expression.
+    *
+    * @param text  The text holding the expression
+    * @param start The index of the first character of the expression
+    * @param end   The index just after the last character of the expression
+    * @return this tokenizer
+    */
+   public FractionTokenizer reset(CharSequence text, int start, int end) {
+      this.text = text;
+      this.pos = start;
+      this.end = end;
+      this.expectOperand = true;
+      this.token = null;
+      this.tokenStart = start;
+      this.error = null;
+      return this;
+   }
+
+   /**
+    * Reads the next token. Once END or ERROR is returned, every following
+    * call returns the same thing.
+    *
+    * @return The type of the token that was read
+    */
+   public Token next() {
+      if (token == Token.END || token == Token.ERROR) {
+         return token;
+      }
+      while (pos < end && Character.isWhitespace(text.charAt(pos))) {
+         pos++;
+      }
+      tokenStart = pos;
+      if (pos == end) {
+         return token = Token.END;
+      }
+      char c = text.charAt(pos);
+      if (isDigit(c) || (c == '-' && expectOperand && pos + 1 < end && isDigit(text.charAt(pos + 1)))) {
+         return readOperand();
+      }
+      if (isOperator(c)) {
+         pos++;
+         operator = c;
+         expectOperand = true;
+         return token = Token.OPERATOR;
+      }
+      if (c == '(') {
+         pos++;
+         expectOperand = true;
+         return token = Token.OPEN;
+      }
+      if (c == ')') {
+         pos++;
+         expectOperand = false;
+         return token = Token.CLOSE;
+      }
+      if (isLetter(c)) {
+         pos++;
+         while (pos < end && (isLetter(text.charAt(pos)) || isDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+            pos++;
+         }
+         expectOperand = false;
+         return token = Token.VARIABLE;
+      }
+      return fail("Unexpected character '" + c + "'");
+   }
+
+   public Token token() {
+      return token;
+   }
+
+   /**
+    * @return The index in the text where the current token starts
+    */
+   public int tokenStart() {
+      return tokenStart;
+   }
+
+   /**
+    * @return The index in the text just after the current token
+    */
+   public int position() {
+      return pos;
+   }
+
+   /**
+    * @return true if the current operand had a minus sign
+    */
+   public boolean negative() {
+      return negative;
+   }
+
+   /**
+    * @return The whole number part of the current operand, without its sign
+    */
+   public long whole() {
+      return whole;
+   }
+
+   /**
+    * @return The numerator of the current operand, without its sign
+    */
+   public long numerator() {
+      return numerator;
+   }
+
+   /**
+    * @return The denominator of the current operand
+    */
+   public long denominator() {
+      return denominator;
+   }
+
+   /**
+    * @return The current operand as a reduced fraction
+    */
+   public Fraction operand() {
+      if (!negative) {
+         return Fraction.mixed(whole, numerator, denominator);
+      }
+      // the parts are never negative, so they can all be negated safely
+      if (whole == 0) {
+         return Fraction.of(-numerator, denominator);
+      }
+      return Fraction.mixed(-whole, numerator, denominator);
+   }
+
+   /**
+    * @return The name of the current variable
+    */
+   public String name() {
+      return text.subSequence(tokenStart, pos).toString();
+   }
+
+   /**
+    * @return One of + - * / for the current operator
+    */
+   public char operator() {
+      return operator;
+   }
+
+   /**
+    * @return A description of the problem when the token is ERROR
+    */
+   public String error() {
+      return error;
+   }
+
+   // reads whole, whole_num/den or num/den
+   private Token readOperand() {
+      negative = text.charAt(pos) == '-';
+      if (negative) {
+         pos++;
+      }
+      long first = readNumber();
+      if (first < 0) {
+         return token;
+      }
+      whole = first;
+      int denominatorStart = pos;
+      numerator = 0;
+      denominator = 1;
+      if (pos < end && text.charAt(pos) == '_') {
+         pos++;
+         numerator = readNumber();
+         if (numerator < 0) {
+            return token;
+         }
+         if (pos == end || text.charAt(pos) != '/') {
+            return fail("Expected '/' in mixed number");
+         }
+         pos++;
+         denominatorStart = pos;
+         denominator = readNumber();
+      } else if (pos + 1 < end && text.charAt(pos) == '/' && isDigit(text.charAt(pos + 1))) {
+         pos++;
+         whole = 0;
+         numerator = first;
+         denominatorStart = pos;
+         denominator = readNumber();
+      }
+      if (denominator < 0) {
+         return token;
+      }
+      if (denominator == 0) {
+         pos = denominatorStart;
+         return fail("Denominator is zero");
+      }
+      if (pos < end && !isSeparator(text.charAt(pos))) {
+         return fail("Unexpected character '" + text.charAt(pos) + "'");
+      }
+      expectOperand = false;
+      return token = Token.OPERAND;
+   }
+
+   // reads an unsigned number, or returns -1 after setting an error
+   private long readNumber() {
+      int start = pos;
+      long value = 0;
+      while (pos < end && isDigit(text.charAt(pos))) {
+         int digit = text.charAt(pos) - '0';
+         if (value > (Long.MAX_VALUE - digit) / 10) {
+            pos = start;
+            fail("Number is too large");
+            return -1;
+         }
+         value = value * 10 + digit;
+         pos++;
+      }
+      if (pos == start) {
+         fail("Expected a number");
+         return -1;
+      }
+      return value;
+   }
+
+   // the error is reported at the current position
+   private Token fail(String message) {
+      tokenStart = pos;
+      error = message;
+      return token = Token.ERROR;
+   }
+
+   private static boolean isDigit(char c) {
+      return c >= '0' && c <= '9';
+   }
+
+   private static boolean isLetter(char c) {
+      return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+   }
+
+   // characters that can come right after an operand
+   private static boolean isSeparator(char c) {
+      return Character.isWhitespace(c) || isOperator(c) || c == '(' || c == ')';
+   }
+
+   private static boolean isOperator(char c) {
+      return c == '+' || c == '-' || c == '*' || c == '/';
+   }
+}
@@ -0,0 +1,140 @@
+package fraccalc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts latencies in nanoseconds into buckets that grow with the value, in
+ * the style of HdrHistogram. Every power of two is split into 16 buckets,
+ * so any percentile is accurate to within about 6%, and the whole range of
+ * a long fits in 960 counters.
+ * <p>
+ * Recording is a few atomic increments with no locks or allocation, so many
+ * threads can record at once. Reading while others record gives a close but
+ * not exact snapshot.
+ */
+public final class LatencyHistogram implements LatencyMXBean {
+
+   private static final int SUB_BITS = 4;
+   private static final int SUB_COUNT = 1 << SUB_BITS;
+   private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+   private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+   private final LongAdder count = new LongAdder();
+   private final LongAdder sum = new LongAdder();
+   private final AtomicLong max = new AtomicLong();
+
+   public void record(long nanos) {
+      if (nanos < 0) {
+         nanos = 0;
+      }
+      counts.incrementAndGet(index(nanos));
+      count.increment();
+      sum.add(nanos);
+      if (nanos > max.get()) {
+         max.accumulateAndGet(nanos, Math::max);
+      }
+   }
+
+   public void reset() {
+      for (int i = 0; i < BUCKETS; i++) {
+         counts.set(i, 0);
+      }
+      count.reset();
+      sum.reset();
+      max.set(0);
+   }
+
+   @Override
+   public long getCount() {
+      return count.sum();
+   }
+
+   /**
+    * @return The mean latency in nanoseconds, or 0 if nothing was recorded
+    */
+   public double mean() {
+      long n = count.sum();
+      return n == 0 ? 0 : (double) sum.sum() / n;
+   }
+
+   /**
+    * @param percent The percentile, from 0 to 100
+    * @return The latency in nanoseconds that this percent of the recorded
+    *         latencies are at or below, or 0 if nothing was recorded
+    */
+   public long percentile(double percent) {
+      long n = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+         n += counts.get(i);
+      }
+      if (n == 0) {
+         return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(percent / 100 * n));
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+         seen += counts.get(i);
+         if (seen >= rank) {
+            return Math.min(highest(i), max.get());
+         }
+      }
+      return max.get();
+   }
+
+   public long max() {
+      return max.get();
+   }
+
+   @Override
+   public double getMeanMicros() {
+      return mean() / 1000;
+   }
+
+   @Override
+   public double getP50Micros() {
+      return percentile(50) / 1000.0;
+   }
+
+   @Override
+   public double getP90Micros() {
+      return percentile(90) / 1000.0;
+   }
+
+   @Override
+   public double getP99Micros() {
+      return percentile(99) / 1000.0;
+   }
+
+   @Override
+   public double getP999Micros() {
+      return percentile(99.9) / 1000.0;
+   }
+
+   @Override
+   public double getMaxMicros() {
+      return max.get() / 1000.0;
+   }
+
+   // values below 16 get a bucket each. Above that, the top bit picks the
+   // power of two and the next four bits pick one of its 16 buckets.
+   static int index(long value) {
+      if (value < SUB_COUNT) {
+         return (int) value;
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+      return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+   }
+
+   // the largest value that goes in a bucket
+   static long highest(int index) {
+      if (index < SUB_COUNT) {
+         return index;
+      }
+      int shift = index / SUB_COUNT - 1;
+      long lowest = (long) (SUB_COUNT + index % SUB_COUNT) << shift;
+      return lowest + (1L << shift) - 1;
+   }
+}
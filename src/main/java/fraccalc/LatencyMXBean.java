@@ -0,0 +1,22 @@
+package fraccalc;
+
+/**
+ * The latencies of one kind of command, as shown over JMX. The times are in
+ * microseconds.
+ */
+public interface LatencyMXBean {
+
+   long getCount();
+
+   double getMeanMicros();
+
+   double getP50Micros();
+
+   double getP90Micros();
+
+   double getP99Micros();
+
+   double getP999Micros();
+
+   double getMaxMicros();
+}
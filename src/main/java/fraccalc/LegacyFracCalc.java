@@ -0,0 +1,178 @@
+package fraccalc;
+
+import java.util.Scanner;
+
+/**
+ * The calculator as it was before the arithmetic moved to Fraction and
+ * FractionTokenizer: two operands and an operator, read with a Scanner and
+ * worked out in ints. It is kept unchanged, int overflow and unreduced
+ * products included, as the reference the shadow mode compares against, so
+ * that any answer the new engine gives differently shows up as a
+ * divergence.
+ * <p>
+ * Longer expressions and input it can't read make it throw, which the shadow
+ * mode counts as the old engine not supporting the input.
+ */
+final class LegacyFracCalc {
+
+   private LegacyFracCalc() {
+   }
+
+   static String processExpression(String input) {
+
+      Scanner parser = new Scanner(input);
+
+      //Gets the Tokens
+      String token1 = parser.next();
+      String operator = parser.next();
+      String token3 = parser.next();
+      if (parser.hasNext()) {
+         throw new IllegalArgumentException("Only two operands are supported");
+      }
+
+      int numerator1 = getNumerator(token1);
+      int denominator1 = getDenominator(token1);
+      int whole1 = getWhole(token1);
+
+      int numerator2 = getNumerator(token3);
+      int denominator2 = getDenominator(token3);
+      int whole2 = getWhole(token3);
+
+      if (whole1 < 0) {
+         numerator1 *= -1;
+      }
+
+      if (whole2 < 0) {
+         numerator2 *= -1;
+      }
+
+      // gets the improper fractions
+      int n1 = denominator1 * whole1 + numerator1;
+      int n2 = denominator2 * whole2 + numerator2;
+
+      //When the operator is the star(*), it calls the multiplication method.
+      if (operator.equals("*")) {
+         return multiplication(n1, n2, denominator1, denominator2);
+      // When the operator is a slash (/) , it calls the division method.
+      } else if (operator.equals("/")) {
+         return division(n1, n2, denominator1, denominator2);
+      // When the operator is a minus sign (-), n2 changes into a negative n2.
+      } else if (operator.equals("-")) {
+         n2 = -1 * n2;
+      }
+
+      int num = denominator1 * n2 + denominator2 * n1;
+      int den = denominator1 * denominator2;
+
+      return simplify(num, den);
+   }
+
+   //This method is responsible for doing the division of an expression.
+   static String division(int num1, int num2, int den1, int den2) {
+      return simplify(num1 * den2, den1 * num2);
+   }
+
+   //This method is responsible for doing the multiplication of an expression.
+   static String multiplication(int num1, int num2, int den1, int den2) {
+      int num = num1 * num2;
+      int den = den1 * den2;
+
+      //For example 3/3 simplifies to 1.
+      if (num == den) {
+         return "1";
+      }
+
+      //if the numerator is 0 there is no fraction, just a whole number.
+      if (num == 0) {
+         return simplify(num, den);
+      }
+
+      //If the numerator is greater than the denominator, it is a improper fraction.
+      //Otherwise the product is returned as it is, without reducing it.
+      if (num > den) {
+         return simplify(num, den);
+      }
+      return num + "/" + den;
+   }
+
+   //This method is responsible for simplifying the negative signs.
+   //For example, if the num and den both have a negative sign, it becomes positive.
+   static String simplifyNegative(String num, String den) {
+      if (num.contains("-") && den.contains("-")) {
+         num = num.substring(1);
+         den = den.substring(1);
+      } else if (den.contains("-")) {
+         num = "-" + num;
+         den = den.substring(1);
+      }
+      return num + "/" + den;
+   }
+
+   //This method is responsible for simplifying fractions.
+   //e.g. 4/8 ---> 1/2
+   static String simplify(int num, int den) {
+      // reduce
+      int gcd = gcd(num, den);
+      num /= gcd;
+      den /= gcd;
+      // format
+      int whole = num / den;
+      num = num % den;
+
+      if (num == 0) {
+         return whole + "";
+      }
+      if (whole == 0) {
+         return simplifyNegative(Integer.toString(num), Integer.toString(den));
+      }
+      String n = Integer.toString(num);
+      String d = Integer.toString(den);
+      String w = Integer.toString(whole);
+      //if num and whole has a negative, the negative is removed from the numerator.
+      if (n.contains("-") && w.contains("-")) {
+         return w + " " + n.substring(1) + "/" + d;
+      //if the den and whole have a negative, the negative sign is removed from the den.
+      } else if (d.contains("-") && w.contains("-")) {
+         return w + " " + n + "/" + d.substring(1);
+      }
+      return whole + " " + num + "/" + den;
+   }
+
+   //This method is responsible for finding the GCD of 2 numbers.
+   static int gcd(int num, int den) {
+      while (den != 0) {
+         int value = num % den;
+         num = den;
+         den = value;
+      }
+      return Math.abs(num);
+   }
+
+   //This method gets the numerator
+   static int getNumerator(String num) {
+      if (num.contains("/") && num.contains("_")) {
+         return Integer.parseInt(num.substring(num.indexOf("_") + 1, num.indexOf("/")));
+      } else if (num.contains("/") && !num.contains("_")) {
+         return Integer.parseInt(num.substring(0, num.indexOf("/")));
+      }
+      return 0;
+   }
+
+   //This method gets the whole number.
+   static int getWhole(String num) {
+      if (!num.contains("/") && !num.contains("_")) {
+         return Integer.parseInt(num);
+      } else if (num.contains("_")) {
+         return Integer.parseInt(num.substring(0, num.indexOf("_")));
+      }
+      return 0;
+   }
+
+   //This method gets denominator. Without a slash it is always 1.
+   static int getDenominator(String num) {
+      if (num.contains("/")) {
+         return Integer.parseInt(num.substring(num.indexOf("/") + 1));
+      }
+      return 1;
+   }
+}
@@ -0,0 +1,194 @@
+package fraccalc;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends commands to a {@link FracCalcServer} from many connections at once
+ * and reports the throughput and the latency percentiles, so the server can
+ * be load tested on one machine.
+ * <p>
+ * Each connection runs on its own thread and keeps up to the pipeline depth
+ * of commands in flight, sending a new one as each answer comes back. A
+ * latency is the time from queueing a command to reading the end of its
+ * answer.
+ * <p>
+ * Usage: java FracCalc --load [--port n | --unix path] [--connections n]
+ * [--requests n] [--pipeline n] [command]
+ * <p>
+ * The requests are per connection, and the command defaults to
+ * 1_1/2 * 3/4 + 5/8. A connection writes its whole pipeline before reading,
+ * so the depth should stay within what the socket buffers hold, which is a
+ * few thousand short commands.
+ */
+public final class LoadGenerator {
+
+   private static final String DEFAULT_COMMAND = "1_1/2 * 3/4 + 5/8";
+
+   private final SocketAddress address;
+   private final String command;
+   private final int requests;
+   private final int pipeline;
+   private final LatencyHistogram latency = new LatencyHistogram();
+   private final LongAdder errors = new LongAdder();
+
+   private LoadGenerator(SocketAddress address, String command, int requests, int pipeline) {
+      this.address = address;
+      this.command = command;
+      this.requests = requests;
+      this.pipeline = pipeline;
+   }
+
+   public static void main(String[] args) {
+      int connections = 8;
+      int requests = 10000;
+      int pipeline = 1;
+      String command = DEFAULT_COMMAND;
+      SocketAddress address;
+      try {
+         address = FracCalcServer.address(args);
+         for (int arg = 0; arg < args.length; arg++) {
+            if (args[arg].equals("--port") || args[arg].equals("--unix")) {
+               arg++;
+            } else if (args[arg].equals("--connections")) {
+               connections = Integer.parseInt(args[++arg]);
+            } else if (args[arg].equals("--requests")) {
+               requests = Integer.parseInt(args[++arg]);
+            } else if (args[arg].equals("--pipeline")) {
+               pipeline = Integer.parseInt(args[++arg]);
+            } else {
+               command = args[arg];
+            }
+         }
+      } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+         System.err.println("Usage: --load [--port n | --unix path] [--connections n] [--requests n] "
+               + "[--pipeline n] [command]");
+         return;
+      }
+      if (connections < 1 || requests < 1 || pipeline < 1) {
+         System.err.println("The connections, requests and pipeline depth must be at least 1");
+         return;
+      }
+      try {
+         System.out.println(run(address, command, connections, requests, pipeline));
+      } catch (IOException e) {
+         System.err.println("Load test failed: " + e.getMessage());
+      }
+   }
+
+   /**
+    * Runs a load test and waits for it to finish.
+    *
+    * @param address     The server
+    * @param command     The command every request sends
+    * @param connections The number of connections, each with its own thread
+    * @param requests    The number of requests each connection sends
+    * @param pipeline    How many requests a connection keeps in flight
+    * @return A report of the throughput and latencies
+    * @throws IOException if a connection fails
+    */
+   public static String run(SocketAddress address, String command, int connections, int requests, int pipeline)
+         throws IOException {
+      LoadGenerator load = new LoadGenerator(address, command, requests, pipeline);
+      ExecutorService threads = Executors.newFixedThreadPool(connections);
+      CountDownLatch ready = new CountDownLatch(connections);
+      CountDownLatch go = new CountDownLatch(1);
+      List<Future<?>> clients = new ArrayList<>();
+      for (int i = 0; i < connections; i++) {
+         clients.add(threads.submit(() -> {
+            load.client(ready, go);
+            return null;
+         }));
+      }
+      try {
+         // every connection is open before the clock starts
+         ready.await();
+         long start = System.nanoTime();
+         go.countDown();
+         for (Future<?> client : clients) {
+            client.get();
+         }
+         long nanos = System.nanoTime() - start;
+         return load.report(connections, nanos);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted");
+      } catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+         throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+      } finally {
+         go.countDown();
+         threads.shutdownNow();
+      }
+   }
+
+   // one connection, run on its own thread
+   private void client(CountDownLatch ready, CountDownLatch go) throws IOException, InterruptedException {
+      SocketChannel channel;
+      try {
+         channel = SocketChannel.open(address);
+      } finally {
+         // a connection that fails still lets the others start
+         ready.countDown();
+      }
+      try {
+         if (channel.supportedOptions().contains(StandardSocketOptions.TCP_NODELAY)) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+         }
+         BufferedReader in = new BufferedReader(
+               new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+         OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+         byte[] request = (command + "\n").getBytes(StandardCharsets.UTF_8);
+         // when each request in flight was queued, by request number
+         long[] queued = new long[pipeline];
+         int sent = 0;
+         int received = 0;
+         go.await();
+         while (received < requests) {
+            while (sent < requests && sent - received < pipeline) {
+               queued[sent % pipeline] = System.nanoTime();
+               out.write(request);
+               sent++;
+            }
+            out.flush();
+            String first = in.readLine();
+            String line = first;
+            while (line != null && !line.isEmpty()) {
+               line = in.readLine();
+            }
+            if (line == null) {
+               throw new EOFException("The server closed the connection after " + received + " answers");
+            }
+            latency.record(System.nanoTime() - queued[received % pipeline]);
+            if (first.startsWith("ERROR")) {
+               errors.increment();
+            }
+            received++;
+         }
+         out.write("quit\n".getBytes(StandardCharsets.UTF_8));
+         out.flush();
+      } finally {
+         channel.close();
+      }
+   }
+
+   private String report(int connections, long nanos) {
+      long total = latency.getCount();
+      StringBuilder report = new StringBuilder();
+      report.append(String.format("%d requests on %d connections, pipeline depth %d, in %.1f ms: %.0f per second\n",
+            total, connections, pipeline, nanos / 1e6, total / (nanos / 1e9)));
+      report.append(String.format("Errors: %d\n", errors.sum()));
+      report.append(String.format("%-10s %10s %10s %10s %10s %10s %10s\n", "microsec", "mean", "p50", "p90", "p99",
+            "p99.9", "max"));
+      report.append(String.format("%-10s %10.2f %10.2f %10.2f %10.2f %10.2f %10.2f", "latency",
+            latency.getMeanMicros(), latency.getP50Micros(), latency.getP90Micros(), latency.getP99Micros(),
+            latency.getP999Micros(), latency.getMaxMicros()));
+      return report.toString();
+   }
+}
@@ -0,0 +1,248 @@
+package fraccalc;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counts what FracCalc.evaluate does: a latency histogram for each operator
+ * and for longer expressions, operations per second, errors, and how often
+ * the arithmetic had to fall back to BigInteger.
+ * <p>
+ * Metrics are off unless the fraccalc.metrics system property is true, or
+ * they are turned on with the stats command or over JMX. While they are off,
+ * a command costs one read of a boolean and nothing else. The first time
+ * they are turned on, the counters are registered as MBeans under the
+ * fraccalc domain.
+ */
+public final class Metrics {
+
+   // the kinds of command that get a histogram
+   private static final String[] NAMES = { "add", "subtract", "multiply", "divide", "expression" };
+   private static final int EXPRESSION = 4;
+
+   private static volatile boolean enabled;
+   private static boolean registered;
+
+   private static final LatencyHistogram[] latencies = new LatencyHistogram[NAMES.length];
+   private static final LongAdder errors = new LongAdder();
+   private static final LongAdder bigIntegerFallbacks = new LongAdder();
+   private static final LongAdder overflows = new LongAdder();
+   private static volatile long resetTime = System.nanoTime();
+
+   static {
+      for (int i = 0; i < latencies.length; i++) {
+         latencies[i] = new LatencyHistogram();
+      }
+      if (Boolean.getBoolean("fraccalc.metrics")) {
+         setEnabled(true);
+      }
+   }
+
+   private Metrics() {
+   }
+
+   public static boolean isEnabled() {
+      return enabled;
+   }
+
+   public static synchronized void setEnabled(boolean on) {
+      if (on && !registered) {
+         register();
+         registered = true;
+      }
+      enabled = on;
+   }
+
+   /**
+    * @return The time to pass to one of the record methods, or 0 when
+    *         metrics are off
+    */
+   static long start() {
+      return enabled ? System.nanoTime() : 0;
+   }
+
+   /**
+    * Records a two operand calculation that started at the given time.
+    */
+   static void record(char operator, long start) {
+      if (start != 0) {
+         latencies[index(operator)].record(System.nanoTime() - start);
+      }
+   }
+
+   /**
+    * Records a longer expression that started at the given time.
+    */
+   static void recordExpression(long start) {
+      if (start != 0) {
+         latencies[EXPRESSION].record(System.nanoTime() - start);
+      }
+   }
+
+   /**
+    * Records a command that could not be worked out, for example because it
+    * could not be read.
+    */
+   static void recordError(long start) {
+      if (start != 0) {
+         errors.increment();
+      }
+   }
+
+   // called by Fraction when a calculation has to use BigIntegers
+   static void bigIntegerFallback() {
+      if (enabled) {
+         bigIntegerFallbacks.increment();
+      }
+   }
+
+   // called by Fraction when a result is too big for longs
+   static void overflow() {
+      if (enabled) {
+         overflows.increment();
+      }
+   }
+
+   /**
+    * @param operator One of + - * /, or any other character for longer
+    *                 expressions
+    */
+   public static LatencyHistogram latency(char operator) {
+      return latencies[index(operator)];
+   }
+
+   public static long operations() {
+      long total = 0;
+      for (LatencyHistogram latency : latencies) {
+         total += latency.getCount();
+      }
+      return total + errors.sum();
+   }
+
+   /**
+    * @return The operations per second since the metrics were last reset
+    */
+   public static double operationsPerSecond() {
+      double seconds = (System.nanoTime() - resetTime) / 1e9;
+      return seconds > 0 ? operations() / seconds : 0;
+   }
+
+   public static long errors() {
+      return errors.sum();
+   }
+
+   public static long bigIntegerFallbacks() {
+      return bigIntegerFallbacks.sum();
+   }
+
+   public static long overflows() {
+      return overflows.sum();
+   }
+
+   public static void reset() {
+      for (LatencyHistogram latency : latencies) {
+         latency.reset();
+      }
+      errors.reset();
+      bigIntegerFallbacks.reset();
+      overflows.reset();
+      resetTime = System.nanoTime();
+   }
+
+   /**
+    * @return A table of the metrics, for the stats command
+    */
+   public static String report() {
+      StringBuilder report = new StringBuilder();
+      if (!enabled) {
+         report.append("Stats are off. Type \"stats on\" to turn them on.\n");
+      }
+      report.append(String.format("Operations: %d (%.1f per second)\n", operations(), operationsPerSecond()));
+      report.append(String.format("Errors: %d\n", errors()));
+      report.append(String.format("BigInteger fallbacks: %d, results too big for longs: %d\n",
+            bigIntegerFallbacks(), overflows()));
+      report.append(String.format("%-10s %10s %10s %10s %10s %10s %10s %10s\n", "microsec", "count", "mean", "p50",
+            "p90", "p99", "p99.9", "max"));
+      for (int i = 0; i < NAMES.length; i++) {
+         LatencyHistogram latency = latencies[i];
+         report.append(String.format("%-10s %10d %10.2f %10.2f %10.2f %10.2f %10.2f %10.2f", NAMES[i],
+               latency.getCount(), latency.getMeanMicros(), latency.getP50Micros(), latency.getP90Micros(),
+               latency.getP99Micros(), latency.getP999Micros(), latency.getMaxMicros()));
+         if (i < NAMES.length - 1) {
+            report.append('\n');
+         }
+      }
+      return report.toString();
+   }
+
+   private static int index(char operator) {
+      if (operator == '+') {
+         return 0;
+      } else if (operator == '-') {
+         return 1;
+      } else if (operator == '*') {
+         return 2;
+      } else if (operator == '/') {
+         return 3;
+      }
+      return EXPRESSION;
+   }
+
+   private static void register() {
+      try {
+         MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+         server.registerMBean(new Bean(), new ObjectName("fraccalc:type=Metrics"));
+         for (int i = 0; i < NAMES.length; i++) {
+            server.registerMBean(latencies[i], new ObjectName("fraccalc:type=Latency,name=" + NAMES[i]));
+         }
+      } catch (JMException | SecurityException e) {
+         // the metrics still work without JMX
+         System.err.println("Could not register the metrics MBeans: " + e);
+      }
+   }
+
+   private static final class Bean implements MetricsMXBean {
+      @Override
+      public boolean isEnabled() {
+         return Metrics.isEnabled();
+      }
+
+      @Override
+      public void setEnabled(boolean on) {
+         Metrics.setEnabled(on);
+      }
+
+      @Override
+      public long getOperations() {
+         return operations();
+      }
+
+      @Override
+      public double getOperationsPerSecond() {
+         return operationsPerSecond();
+      }
+
+      @Override
+      public long getErrors() {
+         return errors();
+      }
+
+      @Override
+      public long getBigIntegerFallbacks() {
+         return bigIntegerFallbacks();
+      }
+
+      @Override
+      public long getOverflows() {
+         return overflows();
+      }
+
+      @Override
+      public void reset() {
+         Metrics.reset();
+      }
+   }
+}
@@ -0,0 +1,24 @@
+package fraccalc;
+
+/**
+ * The command counters, as shown over JMX under fraccalc:type=Metrics. The
+ * latencies of each operator are under fraccalc:type=Latency.
+ */
+public interface MetricsMXBean {
+
+   boolean isEnabled();
+
+   void setEnabled(boolean enabled);
+
+   long getOperations();
+
+   double getOperationsPerSecond();
+
+   long getErrors();
+
+   long getBigIntegerFallbacks();
+
+   long getOverflows();
+
+   void reset();
+}
@@ -0,0 +1,327 @@
+package fraccalc;
+
+/**
+ * A mutable fraction meant to be used as an accumulator. Every operation
+ * updates this object in place and returns it, so a long chain of operations
+ * does not create any objects. Like {@link Fraction}, the value is always kept
+ * in lowest terms with a positive denominator.
+ * <p>
+ * The long arithmetic is checked. If a result overflows, the accumulator holds
+ * an exact BigInteger backed {@link Fraction} instead until a result fits in a
+ * long again.
+ * <p>
+ * This class is not thread safe.
+ */
+public final class MutableFraction {
+
+   private long num;
+   private long den;
+
+   // only set while the value does not fit in a long, otherwise null
+   private Fraction big;
+
+   /**
+    * Creates an accumulator holding zero.
+    */
+   public MutableFraction() {
+      num = 0;
+      den = 1;
+   }
+
+   public MutableFraction(long num, long den) {
+      set(num, den);
+   }
+
+   public MutableFraction(Fraction value) {
+      set(value);
+   }
+
+   /**
+    * Replaces the value of this accumulator.
+    *
+    * @throws ArithmeticException if den is zero
+    */
+   public MutableFraction set(long num, long den) {
+      if (den == 0) {
+         throw new ArithmeticException("Denominator is zero");
+      }
+      if (num == Long.MIN_VALUE || den == Long.MIN_VALUE) {
+         return set(Fraction.of(num, den));
+      }
+      return reduce(num, den);
+   }
+
+   public MutableFraction set(Fraction value) {
+      if (value.fitsInLong()) {
+         num = value.numerator();
+         den = value.denominator();
+         big = null;
+      } else {
+         big = value;
+      }
+      return this;
+   }
+
+   public boolean fitsInLong() {
+      return big == null;
+   }
+
+   /**
+    * @throws ArithmeticException if the numerator does not fit in a long
+    */
+   public long numerator() {
+      return big == null ? num : big.numerator();
+   }
+
+   /**
+    * @throws ArithmeticException if the denominator does not fit in a long
+    */
+   public long denominator() {
+      return big == null ? den : big.denominator();
+   }
+
+   public int signum() {
+      return big == null ? Long.signum(num) : big.signum();
+   }
+
+   public MutableFraction add(long otherNum, long otherDen) {
+      if (big == null && isPlain(otherNum, otherDen)) {
+         long g = Fraction.gcd(otherNum, otherDen);
+         long sign = otherDen < 0 ? -1 : 1;
+         try {
+            return addReduced(sign * otherNum / g, sign * otherDen / g);
+         } catch (ArithmeticException e) {
+            // overflow, so fall back to the exact Fraction below
+         }
+      }
+      return add(Fraction.of(otherNum, otherDen));
+   }
+
+   public MutableFraction add(Fraction other) {
+      if (big == null && other.fitsInLong()) {
+         try {
+            return addReduced(other.numerator(), other.denominator());
+         } catch (ArithmeticException e) {
+            // overflow, so fall back to the exact Fraction below
+         }
+      }
+      return set(toFraction().add(other));
+   }
+
+   /**
+    * Adds another accumulator, for example to combine totals that were
+    * worked out in parallel. The other accumulator is not changed.
+    */
+   public MutableFraction add(MutableFraction other) {
+      if (big == null && other.big == null) {
+         try {
+            return addReduced(other.num, other.den);
+         } catch (ArithmeticException e) {
+            // overflow, so fall back to the exact Fraction below
+         }
+      }
+      return set(toFraction().add(other.toFraction()));
+   }
+
+   public MutableFraction subtract(long otherNum, long otherDen) {
+      if (big == null && isPlain(otherNum, otherDen)) {
+         long g = Fraction.gcd(otherNum, otherDen);
+         long sign = otherDen < 0 ? 1 : -1;
+         try {
+            return addReduced(sign * otherNum / g, -sign * otherDen / g);
+         } catch (ArithmeticException e) {
+            // overflow, so fall back to the exact Fraction below
+         }
+      }
+      return subtract(Fraction.of(otherNum, otherDen));
+   }
+
+   public MutableFraction subtract(Fraction other) {
+      if (big == null && other.fitsInLong()) {
+         try {
+            return addReduced(-other.numerator(), other.denominator());
+         } catch (ArithmeticException e) {
+            // overflow, so fall back to the exact Fraction below
+         }
+      }
+      return set(toFraction().subtract(other));
+   }
+
+   public MutableFraction multiply(long otherNum, long otherDen) {
+      if (big == null && isPlain(otherNum, otherDen)) {
+         long g = Fraction.gcd(otherNum, otherDen);
+         long sign = otherDen < 0 ? -1 : 1;
+         try {
+            return multiplyReduced(sign * otherNum / g, sign * otherDen / g);
+         } catch (ArithmeticException e) {
+            // overflow, so fall back to the exact Fraction below
+         }
+      }
+      return multiply(Fraction.of(otherNum, otherDen));
+   }
+
+   public MutableFraction multiply(Fraction other) {
+      if (big == null && other.fitsInLong()) {
+         try {
+            return multiplyReduced(other.numerator(), other.denominator());
+         } catch (ArithmeticException e) {
+            // overflow, so fall back to the exact Fraction below
+         }
+      }
+      return set(toFraction().multiply(other));
+   }
+
+   /**
+    * Multiplies by another accumulator, which is not changed.
+    */
+   public MutableFraction multiply(MutableFraction other) {
+      if (big == null && other.big == null) {
+         try {
+            return multiplyReduced(other.num, other.den);
+         } catch (ArithmeticException e) {
+            // overflow, so fall back to the exact Fraction below
+         }
+      }
+      return set(toFraction().multiply(other.toFraction()));
+   }
+
+   /**
+    * @throws ArithmeticException if the other fraction is zero
+    */
+   public MutableFraction divide(long otherNum, long otherDen) {
+      if (otherNum == 0) {
+         throw new ArithmeticException("Divide by zero");
+      }
+      if (big == null && isPlain(otherNum, otherDen)) {
+         // multiply by the reciprocal, with the sign on the numerator
+         long g = Fraction.gcd(otherNum, otherDen);
+         long sign = otherNum < 0 ? -1 : 1;
+         try {
+            return multiplyReduced(sign * otherDen / g, sign * otherNum / g);
+         } catch (ArithmeticException e) {
+            // overflow, so fall back to the exact Fraction below
+         }
+      }
+      return divide(Fraction.of(otherNum, otherDen));
+   }
+
+   /**
+    * @throws ArithmeticException if the other fraction is zero
+    */
+   public MutableFraction divide(Fraction other) {
+      if (other.signum() == 0) {
+         throw new ArithmeticException("Divide by zero");
+      }
+      if (big == null && other.fitsInLong()) {
+         long otherNum = other.numerator();
+         long sign = otherNum < 0 ? -1 : 1;
+         try {
+            return multiplyReduced(sign * other.denominator(), sign * otherNum);
+         } catch (ArithmeticException e) {
+            // overflow, so fall back to the exact Fraction below
+         }
+      }
+      return set(toFraction().divide(other));
+   }
+
+   public MutableFraction negate() {
+      if (big != null) {
+         return set(big.negate());
+      }
+      num = -num;
+      return this;
+   }
+
+   public int compareTo(Fraction other) {
+      if (big == null && other.fitsInLong()) {
+         // the cross products are worked out in 128 bits, so this never
+         // overflows and compares the same way Fraction does
+         return Fraction.compare(num, den, other.numerator(), other.denominator());
+      }
+      return toFraction().compareTo(other);
+   }
+
+   /**
+    * @return An immutable copy of the current value
+    */
+   public Fraction toFraction() {
+      return big == null ? Fraction.of(num, den) : big;
+   }
+
+   @Override
+   public String toString() {
+      return big == null ? Fraction.toString(num, den) : big.toString();
+   }
+
+   /**
+    * Adds a reduced fraction with a positive denominator using the LCM of
+    * the denominators, the same way as Fraction. Nothing is changed if it
+    * overflows.
+    *
+    * @throws ArithmeticException if a long overflows
+    */
+   private MutableFraction addReduced(long n2, long d2) {
+      long g = Fraction.gcd(den, d2);
+      if (g == 1) {
+         // the denominators share nothing, so neither does the sum
+         long n = Math.addExact(Math.multiplyExact(num, d2), Math.multiplyExact(n2, den));
+         return store(n, Math.multiplyExact(den, d2));
+      }
+      long s = den / g;
+      long t = Math.addExact(Math.multiplyExact(num, d2 / g), Math.multiplyExact(n2, s));
+      if (t == Long.MIN_VALUE) {
+         throw new ArithmeticException("long overflow");
+      }
+      long g2 = Fraction.gcd(t, g);
+      return store(t / g2, Math.multiplyExact(s, d2 / g2));
+   }
+
+   /**
+    * Multiplies by a reduced fraction with a positive denominator, cancelling
+    * across before multiplying. Nothing is changed if it overflows.
+    *
+    * @throws ArithmeticException if a long overflows
+    */
+   private MutableFraction multiplyReduced(long n2, long d2) {
+      if (num == 0 || n2 == 0) {
+         return store(0, 1);
+      }
+      long g1 = Fraction.gcd(num, d2);
+      long g2 = Fraction.gcd(n2, den);
+      return store(Math.multiplyExact(num / g1, n2 / g2), Math.multiplyExact(den / g2, d2 / g1));
+   }
+
+   // keeps values that are already reduced with a positive denominator
+   private MutableFraction store(long n, long d) {
+      if (n == Long.MIN_VALUE) {
+         throw new ArithmeticException("long overflow");
+      }
+      num = n;
+      den = n == 0 ? 1 : d;
+      return this;
+   }
+
+   // true if the fraction can be reduced and have its sign flipped as longs
+   private static boolean isPlain(long n, long d) {
+      return d != 0 && n != Long.MIN_VALUE && d != Long.MIN_VALUE;
+   }
+
+   private MutableFraction reduce(long n, long d) {
+      big = null;
+      if (n == 0) {
+         num = 0;
+         den = 1;
+         return this;
+      }
+      long g = Fraction.gcd(n, d);
+      n /= g;
+      d /= g;
+      if (d < 0) {
+         n = -n;
+         d = -d;
+      }
+      num = n;
+      den = d;
+      return this;
+   }
+}
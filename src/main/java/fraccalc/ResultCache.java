@@ -0,0 +1,169 @@
+package fraccalc;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of formatted results for two operand calculations such as
+ * 1/2 + 3/4. Operands are stored reduced, so 2/4 + 1 and 1/2 + 1 share an
+ * entry, and the operands of + and * are put in a fixed order, so 1 + 1/2
+ * and 1/2 + 1 share one as well.
+ * <p>
+ * Lookups only read a ConcurrentHashMap and set a flag, so any number of
+ * threads can read at once. When the cache is full, adding an entry evicts
+ * one using the CLOCK algorithm: a hand sweeps over the entries, giving
+ * every entry that was used since the last sweep a second chance. This is
+ * close to least recently used, without keeping a list in order on every
+ * read.
+ */
+public final class ResultCache {
+
+   private final int capacity;
+   private final ConcurrentHashMap<Key, Entry> map;
+
+   // the keys in the order the clock hand visits them, guarded by itself
+   private final Key[] ring;
+   private int hand;
+
+   private final LongAdder hits = new LongAdder();
+   private final LongAdder misses = new LongAdder();
+   private final LongAdder evictions = new LongAdder();
+
+   /**
+    * @param capacity The most results to keep
+    * @throws IllegalArgumentException if capacity is less than 1
+    */
+   public ResultCache(int capacity) {
+      if (capacity < 1) {
+         throw new IllegalArgumentException("Capacity must be at least 1");
+      }
+      this.capacity = capacity;
+      this.map = new ConcurrentHashMap<>(capacity * 4 / 3 + 1);
+      this.ring = new Key[capacity];
+   }
+
+   /**
+    * Looks up a result, counting it as a hit or a miss.
+    *
+    * @return The cached result, or null if there is none
+    */
+   public String get(Fraction left, char operator, Fraction right) {
+      Entry entry = map.get(new Key(left, operator, right));
+      if (entry == null) {
+         misses.increment();
+         return null;
+      }
+      hits.increment();
+      // only write when needed, so readers don't fight over the cache line
+      if (!entry.referenced) {
+         entry.referenced = true;
+      }
+      return entry.result;
+   }
+
+   /**
+    * Adds a result, evicting another one if the cache is full.
+    */
+   public void put(Fraction left, char operator, Fraction right, String result) {
+      Key key = new Key(left, operator, right);
+      synchronized (ring) {
+         if (map.containsKey(key)) {
+            return;
+         }
+         // move the hand until it finds a free slot or an unused entry.
+         // This ends within one sweep, since every entry it passes loses
+         // its second chance.
+         while (ring[hand] != null) {
+            Entry entry = map.get(ring[hand]);
+            if (!entry.referenced) {
+               map.remove(ring[hand]);
+               evictions.increment();
+               break;
+            }
+            entry.referenced = false;
+            hand = (hand + 1) % capacity;
+         }
+         ring[hand] = key;
+         map.put(key, new Entry(result));
+         hand = (hand + 1) % capacity;
+      }
+   }
+
+   public int capacity() {
+      return capacity;
+   }
+
+   public int size() {
+      return map.size();
+   }
+
+   public long hits() {
+      return hits.sum();
+   }
+
+   public long misses() {
+      return misses.sum();
+   }
+
+   public long evictions() {
+      return evictions.sum();
+   }
+
+   @Override
+   public String toString() {
+      long hitCount = hits();
+      long lookups = hitCount + misses();
+      double rate = lookups == 0 ? 0 : 100.0 * hitCount / lookups;
+      return String.format("cache: %d hits, %d misses, %d evictions, %d / %d entries (hit rate %.1f%%)", hitCount,
+            misses(), evictions(), size(), capacity, rate);
+   }
+
+   private static final class Key {
+
+      private final Fraction left;
+      private final char operator;
+      private final Fraction right;
+      private final int hash;
+
+      Key(Fraction left, char operator, Fraction right) {
+         // the order doesn't matter for + and *, so pick one
+         if ((operator == '+' || operator == '*') && left.hashCode() > right.hashCode()) {
+            Fraction swap = left;
+            left = right;
+            right = swap;
+         }
+         this.left = left;
+         this.operator = operator;
+         this.right = right;
+         this.hash = (left.hashCode() * 31 + operator) * 31 + right.hashCode();
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (this == o) {
+            return true;
+         }
+         if (!(o instanceof Key)) {
+            return false;
+         }
+         Key k = (Key) o;
+         return hash == k.hash && operator == k.operator && left.equals(k.left) && right.equals(k.right);
+      }
+
+      @Override
+      public int hashCode() {
+         return hash;
+      }
+   }
+
+   private static final class Entry {
+
+      private final String result;
+      // set when the entry is read, cleared when the clock hand passes
+      private volatile boolean referenced;
+
+      Entry(String result) {
+         this.result = result;
+      }
+   }
+}
@@ -0,0 +1,248 @@
+package fraccalc;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+
+/**
+ * Records commands and their results to a test file in the format that
+ * UnitTestRunner reads, without doing any file I/O on the thread that runs
+ * the commands. Each command and result goes into a bounded queue, and a
+ * background thread takes them off in batches and writes them through a
+ * large buffer.
+ * <p>
+ * When the queue is full, {@link #record} waits for room by default, so
+ * nothing is lost and memory stays bounded. With the drop policy it doesn't
+ * wait, and counts the records it had to drop instead. The queue size and
+ * policy come from the fraccalc.recorder.queue and fraccalc.recorder.full
+ * (block or drop) system properties.
+ * <p>
+ * {@link #flush} and {@link #close} wait until everything recorded so far
+ * is in the file. A shutdown hook closes the recorder if the program ends
+ * while it is still open.
+ */
+final class SessionRecorder implements Closeable {
+
+   static final int DEFAULT_QUEUE_SIZE = 8192;
+   private static final int BUFFER_SIZE = 1 << 20;
+   private static final int BATCH_SIZE = 1024;
+
+   // a queue entry: a command and its result, or a flush when command is null
+   private static final class Record {
+      final String command;
+      final String result;
+      final CountDownLatch done;
+
+      Record(String command, String result, CountDownLatch done) {
+         this.command = command;
+         this.result = result;
+         this.done = done;
+      }
+   }
+
+   private final Path file;
+   private final BufferedWriter out;
+   private final BlockingQueue<Record> queue;
+   private final boolean dropWhenFull;
+   private final Thread writer;
+   private final Thread shutdownHook;
+   private volatile boolean closed;
+   private volatile IOException failure;
+   private long dropped;
+
+   SessionRecorder(Path file) throws IOException {
+      this(file, Integer.getInteger("fraccalc.recorder.queue", DEFAULT_QUEUE_SIZE),
+            "drop".equalsIgnoreCase(System.getProperty("fraccalc.recorder.full")));
+   }
+
+   /**
+    * Opens the file and starts the writer thread.
+    *
+    * @param file         The test file to write
+    * @param queueSize    How many records can wait to be written
+    * @param dropWhenFull If true, drop records when the queue is full instead
+    *                     of waiting for room
+    */
+   SessionRecorder(Path file, int queueSize, boolean dropWhenFull) throws IOException {
+      this.file = file;
+      // the default charset, which is what the test runner reads with
+      this.out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file)), BUFFER_SIZE);
+      this.queue = new ArrayBlockingQueue<>(Math.max(queueSize, 1));
+      this.dropWhenFull = dropWhenFull;
+      writer = new Thread(this::write, "SessionRecorder " + file.getFileName());
+      writer.setDaemon(true);
+      writer.start();
+      shutdownHook = new Thread(this::closeQuietly, "SessionRecorder shutdown");
+      Runtime.getRuntime().addShutdownHook(shutdownHook);
+   }
+
+   Path file() {
+      return file;
+   }
+
+   /**
+    * Queues a command and its result to be written.
+    *
+    * @return false if the record was dropped because the queue was full
+    */
+   boolean record(String command, String result) {
+      if (closed) {
+         throw new IllegalStateException("The recorder is closed");
+      }
+      Record record = new Record(command, result == null ? "" : result, null);
+      if (dropWhenFull) {
+         if (!queue.offer(record)) {
+            dropped++;
+            return false;
+         }
+         return true;
+      }
+      try {
+         queue.put(record);
+         return true;
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         dropped++;
+         return false;
+      }
+   }
+
+   /**
+    * @return How many records were dropped because the queue was full
+    */
+   long dropped() {
+      return dropped;
+   }
+
+   /**
+    * Waits until everything recorded so far is written to the file.
+    *
+    * @throws IOException if writing the file failed
+    */
+   void flush() throws IOException {
+      if (!closed) {
+         CountDownLatch done = new CountDownLatch(1);
+         try {
+            // a flush must not be dropped, so it always waits for room
+            queue.put(new Record(null, null, done));
+            done.await();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+      }
+      if (failure != null) {
+         throw failure;
+      }
+   }
+
+   /**
+    * Writes everything recorded so far, then closes the file.
+    *
+    * @throws IOException if writing the file failed
+    */
+   @Override
+   public void close() throws IOException {
+      synchronized (this) {
+         if (closed) {
+            return;
+         }
+         flush();
+         closed = true;
+      }
+      writer.interrupt();
+      try {
+         Runtime.getRuntime().removeShutdownHook(shutdownHook);
+      } catch (IllegalStateException e) {
+         // the program is already shutting down
+      }
+      try {
+         out.close();
+      } catch (IOException e) {
+         if (failure == null) {
+            failure = e;
+         }
+      }
+      if (failure != null) {
+         throw failure;
+      }
+   }
+
+   private void closeQuietly() {
+      try {
+         close();
+      } catch (IOException e) {
+         System.err.println("Could not finish writing " + file + ": " + e.getMessage());
+      }
+   }
+
+   // the writer thread
+   private void write() {
+      ArrayList<Record> batch = new ArrayList<>(BATCH_SIZE);
+      try {
+         while (true) {
+            batch.add(queue.take());
+            queue.drainTo(batch, BATCH_SIZE - 1);
+            for (Record record : batch) {
+               if (record.command != null) {
+                  if (failure == null) {
+                     writeRecord(record.command, record.result);
+                  }
+               } else {
+                  flushFile();
+                  record.done.countDown();
+               }
+            }
+            batch.clear();
+         }
+      } catch (InterruptedException e) {
+         // closed
+      }
+   }
+
+   private void writeRecord(String command, String result) {
+      try {
+         out.write(command);
+         out.newLine();
+         // the same lines that result.split("\\n") gives, so trailing
+         // empty lines are left out
+         int end = result.length();
+         while (end > 0 && result.charAt(end - 1) == '\n') {
+            end--;
+         }
+         if (end == 0) {
+            out.write('0');
+            out.newLine();
+            return;
+         }
+         int lines = 1;
+         for (int i = 0; i < end; i++) {
+            if (result.charAt(i) == '\n') {
+               lines++;
+            }
+         }
+         out.write(Integer.toString(lines));
+         out.newLine();
+         int start = 0;
+         for (int i = 0; i <= end; i++) {
+            if (i == end || result.charAt(i) == '\n') {
+               out.write(result, start, i - start);
+               out.newLine();
+               start = i + 1;
+            }
+         }
+      } catch (IOException e) {
+         failure = e;
+      }
+   }
+
+   private void flushFile() {
+      if (failure == null) {
+         try {
+            out.flush();
+         } catch (IOException e) {
+            failure = e;
+         }
+      }
+   }
+}
@@ -0,0 +1,221 @@
+package fraccalc;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs a sample of commands through a second engine as well as the one that
+ * answers them, and compares the two answers string for string. That way a
+ * rewrite of the arithmetic can be checked against real traffic before it
+ * takes over, or an old engine kept as a reference after.
+ * <p>
+ * The answer is always the primary engine's. A sampled command is also given
+ * to the shadow engine, both are timed, and the two answers are compared. A
+ * divergence is counted and logged with its input, up to
+ * {@link #LOG_LIMIT} of them until the counts are reset. When the shadow
+ * engine answers with an ERROR, for example for a longer expression the
+ * original calculator never handled, that is counted separately and not
+ * logged, as its error messages aren't something to match.
+ * <p>
+ * Choosing whether to sample takes one volatile read, and while sampling is
+ * off that is all it costs. The choice is made with ThreadLocalRandom and
+ * the counts are LongAdders and LatencyHistograms, so nothing takes a lock
+ * and threads don't fight over shared counters. A sampled command takes
+ * about as long as both engines together, so the rate sets the overhead.
+ */
+public final class ShadowEvaluator {
+
+   /** How many divergences are logged before the rest are only counted */
+   public static final int LOG_LIMIT = 100;
+
+   // the rate is kept as a threshold for 24 random bits
+   private static final int SCALE = 1 << 24;
+
+   private final Function<String, String> primary;
+   private final Function<String, String> shadow;
+   private volatile Consumer<String> log = System.err::println;
+
+   private volatile int threshold;
+
+   private final LongAdder samples = new LongAdder();
+   private final LongAdder divergences = new LongAdder();
+   // the shadow answered with an ERROR that the primary didn't match
+   private final LongAdder unsupported = new LongAdder();
+   private final AtomicInteger logged = new AtomicInteger();
+   private final LatencyHistogram primaryLatency = new LatencyHistogram();
+   private final LatencyHistogram shadowLatency = new LatencyHistogram();
+
+   /**
+    * @param primary The engine whose answers are returned
+    * @param shadow  The engine that is compared with it
+    */
+   public ShadowEvaluator(Function<String, String> primary, Function<String, String> shadow) {
+      this.primary = primary;
+      this.shadow = shadow;
+   }
+
+   /**
+    * Sets the fraction of commands that are run through both engines.
+    *
+    * @param rate From 0, for none, to 1, for every command
+    * @throws IllegalArgumentException if the rate is out of range
+    */
+   public void setRate(double rate) {
+      if (!(rate >= 0 && rate <= 1)) {
+         throw new IllegalArgumentException("The rate must be from 0 to 1");
+      }
+      threshold = (int) Math.round(rate * SCALE);
+   }
+
+   public double getRate() {
+      return (double) threshold / SCALE;
+   }
+
+   /**
+    * Sends divergences somewhere other than standard error.
+    */
+   public void setLog(Consumer<String> log) {
+      this.log = log;
+   }
+
+   /**
+    * @return Whether this call should be run through both engines
+    */
+   public boolean sample() {
+      int t = threshold;
+      return t != 0 && (t == SCALE || ThreadLocalRandom.current().nextInt(SCALE) < t);
+   }
+
+   /**
+    * Answers a command with the primary engine, and with the shadow engine
+    * too if it is sampled.
+    */
+   public String evaluate(String input) {
+      if (!sample()) {
+         return primary.apply(input);
+      }
+      return compare(input);
+   }
+
+   /**
+    * Runs a command through both engines and records how they compare.
+    *
+    * @return The primary engine's answer
+    */
+   public String compare(String input) {
+      return compare(input, primary);
+   }
+
+   /**
+    * Runs a command through both engines, with a different primary engine
+    * for just this command, such as one that knows the caller's variables.
+    *
+    * @return The answer of the given primary engine
+    */
+   public String compare(String input, Function<String, String> primary) {
+      samples.increment();
+      // the order is chosen at random, so neither engine always runs with
+      // the caches the other has warmed up
+      boolean shadowFirst = ThreadLocalRandom.current().nextBoolean();
+      long start = System.nanoTime();
+      String theirs = shadowFirst ? run(shadow, input) : null;
+      long middle = System.nanoTime();
+      String ours = run(primary, input);
+      long end = System.nanoTime();
+      primaryLatency.record(end - middle);
+      if (shadowFirst) {
+         shadowLatency.record(middle - start);
+      } else {
+         theirs = run(shadow, input);
+         shadowLatency.record(System.nanoTime() - end);
+      }
+      if (!ours.equals(theirs)) {
+         if (theirs.startsWith("ERROR")) {
+            unsupported.increment();
+         } else {
+            divergences.increment();
+            if (logged.getAndIncrement() < LOG_LIMIT) {
+               log.accept("Shadow divergence for \"" + input + "\": \"" + ours + "\" but the shadow said \"" + theirs
+                     + "\"");
+            }
+         }
+      }
+      return ours;
+   }
+
+   // an engine that throws gives an ERROR answer, as in BatchEvaluator
+   private static String run(Function<String, String> engine, String input) {
+      try {
+         return engine.apply(input);
+      } catch (RuntimeException e) {
+         return "ERROR: " + e.getMessage();
+      }
+   }
+
+   public long getSamples() {
+      return samples.sum();
+   }
+
+   public long getDivergences() {
+      return divergences.sum();
+   }
+
+   public long getUnsupported() {
+      return unsupported.sum();
+   }
+
+   public LatencyHistogram getPrimaryLatency() {
+      return primaryLatency;
+   }
+
+   public LatencyHistogram getShadowLatency() {
+      return shadowLatency;
+   }
+
+   public void reset() {
+      samples.reset();
+      divergences.reset();
+      unsupported.reset();
+      logged.set(0);
+      primaryLatency.reset();
+      shadowLatency.reset();
+   }
+
+   /**
+    * @return A table of the counts and latencies, for the shadow command.
+    *         The difference row is the shadow's latency minus the
+    *         primary's, so it is negative where the shadow is faster.
+    */
+   public String report() {
+      StringBuilder report = new StringBuilder();
+      long sampled = samples.sum();
+      report.append(String.format("Shadow rate: %.4g%%, %d commands compared\n", getRate() * 100, sampled));
+      report.append(String.format("Divergences: %d", divergences.sum()));
+      if (logged.get() > LOG_LIMIT) {
+         report.append(String.format(" (only the first %d were logged)", LOG_LIMIT));
+      }
+      report.append(String.format("\nShadow errors: %d\n", unsupported.sum()));
+      report.append(String.format("%-10s %10s %10s %10s %10s %10s\n", "microsec", "mean", "p50", "p90", "p99",
+            "p99.9"));
+      appendRow(report, "primary", primaryLatency.getMeanMicros(), primaryLatency.getP50Micros(),
+            primaryLatency.getP90Micros(), primaryLatency.getP99Micros(), primaryLatency.getP999Micros());
+      report.append('\n');
+      appendRow(report, "shadow", shadowLatency.getMeanMicros(), shadowLatency.getP50Micros(),
+            shadowLatency.getP90Micros(), shadowLatency.getP99Micros(), shadowLatency.getP999Micros());
+      report.append('\n');
+      appendRow(report, "difference", shadowLatency.getMeanMicros() - primaryLatency.getMeanMicros(),
+            shadowLatency.getP50Micros() - primaryLatency.getP50Micros(),
+            shadowLatency.getP90Micros() - primaryLatency.getP90Micros(),
+            shadowLatency.getP99Micros() - primaryLatency.getP99Micros(),
+            shadowLatency.getP999Micros() - primaryLatency.getP999Micros());
+      return report.toString();
+   }
+
+   private static void appendRow(StringBuilder report, String name, double mean, double p50, double p90, double p99,
+         double p999) {
+      report.append(String.format("%-10s %10.2f %10.2f %10.2f %10.2f %10.2f", name, mean, p50, p90, p99, p999));
+   }
+}
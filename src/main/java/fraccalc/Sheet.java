@@ -0,0 +1,262 @@
+package fraccalc;
+
+import java.util.*;
+
+/**
+ * Named variables whose values are expressions of other variables, like the
+ * cells of a spreadsheet. "a = 1_1/2" and then "b = a * 3/4" makes b 9/8,
+ * and changing a later changes b too.
+ * <p>
+ * Each variable keeps its compiled expression, its value, and the variables
+ * that use it. Assigning one works out its new value, and then the values of
+ * only the variables downstream of it, each after everything it uses. A
+ * variable whose value comes out the same as before doesn't make the
+ * variables that use it work theirs out again. Nothing else in the sheet is
+ * touched, so an edit costs the size of what depends on it, not the size of
+ * the sheet.
+ * <p>
+ * A variable can be used before it is assigned. Until then it, and every
+ * variable that uses it, has an error instead of a value. An assignment that
+ * would make a variable depend on itself is refused and changes nothing.
+ * <p>
+ * The methods are synchronized, so a sheet can be shared between threads,
+ * but each edit holds the lock while it works out the values downstream.
+ */
+public final class Sheet {
+
+   private final Map<String, Cell> cells = new HashMap<>();
+
+   // one variable. A variable that has only been used has no expression.
+   private static final class Cell {
+      final String name;
+      Expression expression;
+      // the variables the expression uses, in the order of its variables()
+      Cell[] inputs = new Cell[0];
+      // the variables whose expressions use this one
+      final Set<Cell> dependents = new LinkedHashSet<>();
+      Fraction value;
+      String error;
+      // working space for assign(), only meaningful during one edit
+      int pending;
+      boolean changed;
+
+      Cell(String name) {
+         this.name = name;
+         error = name + " is not defined";
+      }
+   }
+
+   /**
+    * Checks whether a line is an assignment, such as "a = 1/2".
+    *
+    * @return The index of the =, or -1 if the line is not an assignment
+    */
+   public static int assignment(String line) {
+      int equals = line.indexOf('=');
+      if (equals < 0 || !isName(line.substring(0, equals).trim())) {
+         return -1;
+      }
+      return equals;
+   }
+
+   /**
+    * @return Whether the text is a variable name, a letter followed by
+    *         letters, digits and underscores, as Expression reads them
+    */
+   public static boolean isName(String text) {
+      if (text.isEmpty() || !isLetter(text.charAt(0))) {
+         return false;
+      }
+      for (int i = 1; i < text.length(); i++) {
+         char c = text.charAt(i);
+         if (!isLetter(c) && !(c >= '0' && c <= '9') && c != '_') {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Assigns an expression to a variable and works out the new values of
+    * it and everything downstream of it.
+    *
+    * @param name       The variable
+    * @param expression The expression, which may use other variables
+    * @return The number of variables whose values were worked out, including
+    *         this one
+    * @throws IllegalArgumentException if the name or expression can't be
+    *                                  read, or the variable would depend on
+    *                                  itself. The sheet is left unchanged.
+    */
+   public synchronized int assign(String name, String expression) {
+      if (!isName(name)) {
+         throw new IllegalArgumentException("\"" + name + "\" is not a variable name");
+      }
+      Expression compiled = Expression.compile(expression);
+      Cell cell = cells.get(name);
+      List<Cell> downstream = cell == null ? List.of() : downstream(cell);
+      // the cells that use this one don't change, so it depends on itself
+      // if the expression uses anything already downstream of it
+      for (String input : compiled.variables()) {
+         Cell used = cells.get(input);
+         if (input.equals(name) || used != null && used.pending > 0) {
+            for (Cell c : downstream) {
+               c.pending = 0;
+            }
+            throw new IllegalArgumentException(name + " can't depend on itself through " + input);
+         }
+      }
+      if (cell == null) {
+         cell = new Cell(name);
+         cells.put(name, cell);
+      }
+      for (Cell input : cell.inputs) {
+         input.dependents.remove(cell);
+      }
+      Cell[] inputs = new Cell[compiled.variableCount()];
+      for (int i = 0; i < inputs.length; i++) {
+         inputs[i] = cells.computeIfAbsent(compiled.variable(i), Cell::new);
+         inputs[i].dependents.add(cell);
+      }
+      cell.expression = compiled;
+      cell.inputs = inputs;
+      // the new inputs are all upstream, so the counts downstream() left
+      // are still right
+      return recompute(cell);
+   }
+
+   /**
+    * @return The value of a variable
+    * @throws IllegalArgumentException if the variable has no value, because
+    *                                  it isn't defined or its expression
+    *                                  fails
+    */
+   public synchronized Fraction get(String name) {
+      Cell cell = cells.get(name);
+      if (cell == null) {
+         throw new IllegalArgumentException(name + " is not defined");
+      }
+      if (cell.value == null) {
+         throw new IllegalArgumentException(cell.error);
+      }
+      return cell.value;
+   }
+
+   /**
+    * Evaluates an expression with the current values of its variables. The
+    * sheet is not changed.
+    *
+    * @throws IllegalArgumentException if a variable has no value
+    * @throws ArithmeticException      if the expression divides by zero
+    */
+   public synchronized Fraction evaluate(Expression expression) {
+      Fraction[] values = new Fraction[expression.variableCount()];
+      for (int i = 0; i < values.length; i++) {
+         values[i] = get(expression.variable(i));
+      }
+      return expression.evaluate(values);
+   }
+
+   /**
+    * @return The number of variables, counting ones that are used but not
+    *         assigned
+    */
+   public synchronized int size() {
+      return cells.size();
+   }
+
+   /**
+    * @return Every assigned variable, one per line in name order, as
+    *         "b = a * 3/4 = 9/8", or an ERROR instead of the value
+    */
+   @Override
+   public synchronized String toString() {
+      StringBuilder text = new StringBuilder();
+      for (String name : new TreeSet<>(cells.keySet())) {
+         Cell cell = cells.get(name);
+         if (cell.expression == null) {
+            continue;
+         }
+         if (text.length() > 0) {
+            text.append('\n');
+         }
+         text.append(name).append(" = ").append(cell.expression.toString().trim()).append(" = ");
+         text.append(cell.value != null ? cell.value.toString() : "ERROR: " + cell.error);
+      }
+      return text.toString();
+   }
+
+   // the cells downstream of a cell, not counting it, each with pending
+   // set to the number of its inputs that are the cell or downstream of it.
+   // A stack rather than recursion, as a chain can be thousands long.
+   private static List<Cell> downstream(Cell cell) {
+      List<Cell> found = new ArrayList<>();
+      ArrayDeque<Cell> stack = new ArrayDeque<>();
+      stack.push(cell);
+      while (!stack.isEmpty()) {
+         for (Cell dependent : stack.pop().dependents) {
+            if (dependent.pending++ == 0) {
+               found.add(dependent);
+               stack.push(dependent);
+            }
+         }
+      }
+      return found;
+   }
+
+   // works out the cell and then what is downstream of it in topological
+   // order: a cell is ready once every input in the edit has been done
+   // (Kahn's algorithm over just the cells the edit can reach). The counts
+   // of inputs left to do are the ones downstream() set.
+   private static int recompute(Cell cell) {
+      int count = 0;
+      ArrayDeque<Cell> ready = new ArrayDeque<>();
+      cell.changed = true;
+      ready.add(cell);
+      while (!ready.isEmpty()) {
+         Cell next = ready.poll();
+         boolean changed = next.changed;
+         if (changed) {
+            changed = update(next);
+            count++;
+         }
+         next.changed = false;
+         for (Cell dependent : next.dependents) {
+            dependent.changed |= changed;
+            if (--dependent.pending == 0) {
+               ready.add(dependent);
+            }
+         }
+      }
+      return count;
+   }
+
+   // works out one cell from its inputs, and returns whether its value or
+   // error changed
+   private static boolean update(Cell cell) {
+      Fraction value = null;
+      String error = null;
+      Fraction[] values = new Fraction[cell.inputs.length];
+      for (int i = 0; i < values.length && error == null; i++) {
+         values[i] = cell.inputs[i].value;
+         if (values[i] == null) {
+            error = cell.inputs[i].error;
+         }
+      }
+      if (error == null) {
+         try {
+            value = cell.expression.evaluate(values);
+         } catch (ArithmeticException | IllegalArgumentException e) {
+            error = e.getMessage();
+         }
+      }
+      boolean changed = !Objects.equals(value, cell.value) || !Objects.equals(error, cell.error);
+      cell.value = value;
+      cell.error = error;
+      return changed;
+   }
+
+   private static boolean isLetter(char c) {
+      return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+   }
+}
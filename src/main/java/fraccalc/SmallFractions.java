@@ -0,0 +1,114 @@
+package fraccalc;
+
+/**
+ * Tables for fractions with small numerators and denominators, such as 3/4
+ * or 23/4 for 5_3/4, which are most of what people type. Fraction takes its
+ * instances and strings for these from here, so making one doesn't allocate
+ * and printing one doesn't format it again, and the GCD of two small numbers
+ * is looked up instead of worked out.
+ * <p>
+ * The tables cover denominators from 1 to 64 and numerators from -256 to
+ * 256. The fraccalc.small.denominator and fraccalc.small.numerator system
+ * properties change those limits, up to 4096 each, and a denominator limit
+ * of 0 turns the tables off. The fraction table holds two references for
+ * each numerator and denominator, about 260 KB with the defaults, and the
+ * GCD table two bytes for each pair, about 33 KB. The tables are kept to
+ * 2^19 slots, 4 MB of compressed references, by lowering the denominator
+ * limit when the two limits together would need more.
+ * <p>
+ * Nothing is built until it is first used, and each fraction and string is
+ * only made the first time it is asked for. Two threads asking for the same
+ * new entry at once may both make it, which is harmless because the two are
+ * equal and immutable.
+ */
+final class SmallFractions {
+
+   private static final int LIMIT = 4096;
+   private static final int MAX_SLOTS = 1 << 19;
+
+   private static final int NUMERATORS = limit("fraccalc.small.numerator", 256);
+   static final int MAX_DENOMINATOR = Math.min(limit("fraccalc.small.denominator", 64),
+         MAX_SLOTS / (2 * NUMERATORS + 1));
+   static final int MAX_NUMERATOR = MAX_DENOMINATOR == 0 ? 0 : NUMERATORS;
+
+   // the slots for one denominator, one for each numerator
+   private static final int ROW = 2 * MAX_NUMERATOR + 1;
+
+   private SmallFractions() {
+   }
+
+   // made the first time a fraction or string is looked up
+   private static final class Entries {
+      static final Fraction[] FRACTIONS = new Fraction[ROW * MAX_DENOMINATOR];
+      static final String[] STRINGS = new String[ROW * MAX_DENOMINATOR];
+   }
+
+   // made the first time a GCD is looked up. gcd(a, b) is at
+   // a * (MAX_DENOMINATOR + 1) + b.
+   private static final class Gcds {
+      static final short[] TABLE = build();
+
+      private static short[] build() {
+         int width = MAX_DENOMINATOR + 1;
+         short[] table = new short[(MAX_NUMERATOR + 1) * width];
+         for (int a = 0; a <= MAX_NUMERATOR; a++) {
+            for (int b = 0; b <= MAX_DENOMINATOR; b++) {
+               // Euclid's algorithm, as Fraction.gcd would come back here
+               int x = a;
+               int y = b;
+               while (y != 0) {
+                  int r = x % y;
+                  x = y;
+                  y = r;
+               }
+               table[a * width + b] = (short) x;
+            }
+         }
+         return table;
+      }
+   }
+
+   /**
+    * @param num A numerator in lowest terms
+    * @param den A positive denominator in lowest terms
+    * @return The slot for num/den in {@link #fractions()} and
+    *         {@link #strings()}, or -1 if it is not in the table
+    */
+   static int index(long num, long den) {
+      if (den > MAX_DENOMINATOR || num > MAX_NUMERATOR || num < -MAX_NUMERATOR) {
+         return -1;
+      }
+      return (int) (den - 1) * ROW + (int) num + MAX_NUMERATOR;
+   }
+
+   static Fraction[] fractions() {
+      return Entries.FRACTIONS;
+   }
+
+   static String[] strings() {
+      return Entries.STRINGS;
+   }
+
+   /**
+    * Looks up the GCD of two numbers that are not negative.
+    *
+    * @return The GCD, or -1 if the numbers are too big for the table
+    */
+   static int gcd(long a, long b) {
+      if (a > MAX_NUMERATOR || b > MAX_DENOMINATOR) {
+         // the table is only for the numerator first, so try it swapped
+         if (b > MAX_NUMERATOR || a > MAX_DENOMINATOR) {
+            return -1;
+         }
+         long swap = a;
+         a = b;
+         b = swap;
+      }
+      return Gcds.TABLE[(int) a * (MAX_DENOMINATOR + 1) + (int) b];
+   }
+
+   private static int limit(String property, int defaultValue) {
+      int value = Integer.getInteger(property, defaultValue);
+      return Math.max(0, Math.min(value, LIMIT));
+   }
+}
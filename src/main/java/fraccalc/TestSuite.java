@@ -0,0 +1,380 @@
+package fraccalc;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A test file read into memory, so the tests in it can be run in any order
+ * or on several threads while the results are still reported in file order.
+ * The file format is the one UnitTestRunner reads and writes: a command, a
+ * line with the number of expected output lines and optionally the points,
+ * and then the expected lines. Comment lines start with //, and a line of
+ * "// subtotal" ends a section.
+ * <p>
+ * Time limits in milliseconds are set with &lt;timeout test=50&gt;, which
+ * applies to each of the tests after it until the next limit for tests, and
+ * &lt;timeout section=500&gt;, which applies to all of the tests up to the
+ * end of the section together. The older &lt;timeout=500&gt; and
+ * &lt;timeoutStart time=500&gt; lines are section limits. A limit of 0
+ * turns it off.
+ * <p>
+ * A suite can also be saved in a binary format, in a file ending in .bin,
+ * which is read by mapping the file into memory instead of splitting and
+ * parsing lines. Counts and lengths are unsigned varints of 7 bits a byte,
+ * low bits first, and each string is its length in bytes followed by that
+ * many bytes of UTF-8:
+ * <pre>
+ * int     magic number, "FCT1"
+ * int     number of entries
+ * entries, each a byte with the kind in the low 4 bits followed by
+ *   TEST              a big-endian double of the points if bit 4 of the kind
+ *                     byte is set, otherwise the default points, then the
+ *                     number of expected lines, the command and the lines,
+ *                     then the line of the count and points as written if
+ *                     bit 5 is set
+ *   TEST_TIMEOUT,
+ *   SECTION_TIMEOUT   milliseconds, the original line
+ *   COMMENT           text, then the original line if bit 5 is set
+ *   anything else     text
+ * </pre>
+ * The original lines are only kept where writing the entry back out the
+ * usual way wouldn't give the same line, such as points written as 2.0 or a
+ * comment without a space after the //, so converting a text file to binary
+ * and back gives the same lines.
+ */
+final class TestSuite {
+
+   enum Kind {
+      TEST, COMMENT, SUBTOTAL, TEST_TIMEOUT, SECTION_TIMEOUT, ERROR
+   }
+
+   /**
+    * One line or test case from the file.
+    */
+   static final class Entry {
+      final Kind kind;
+      // the command for a test, the comment text, or the error message
+      final String text;
+      final String[] expected;
+      final double points;
+      // the time limit of a timeout line, in milliseconds
+      final int millis;
+      // the line of the count and points of a test, or the whole line of a
+      // comment, when it isn't the one writeText would make
+      final String source;
+
+      private Entry(Kind kind, String text, String[] expected, double points, int millis) {
+         this(kind, text, expected, points, millis, null);
+      }
+
+      private Entry(Kind kind, String text, String[] expected, double points, int millis, String source) {
+         this.kind = kind;
+         this.text = text;
+         this.expected = expected;
+         this.points = points;
+         this.millis = millis;
+         this.source = source;
+      }
+   }
+
+   static final String BINARY_EXTENSION = ".bin";
+   private static final int MAGIC = 0x46435431;
+   private static final int KIND_MASK = 0x0F;
+   private static final int HAS_POINTS = 0x10;
+   private static final int HAS_SOURCE = 0x20;
+
+   private final List<Entry> entries;
+   private final int testCount;
+
+   private TestSuite(List<Entry> entries) {
+      this.entries = Collections.unmodifiableList(entries);
+      int count = 0;
+      for (Entry entry : entries) {
+         if (entry.kind == Kind.TEST) {
+            count++;
+         }
+      }
+      this.testCount = count;
+   }
+
+   List<Entry> entries() {
+      return entries;
+   }
+
+   int testCount() {
+      return testCount;
+   }
+
+   /**
+    * Reads a test file in the binary format if its name ends in .bin, and in
+    * the text format otherwise.
+    */
+   static TestSuite read(File file) throws IOException {
+      if (file.getName().endsWith(BINARY_EXTENSION)) {
+         return readBinary(file.toPath());
+      }
+      try (Scanner scanner = new Scanner(file)) {
+         return read(scanner);
+      }
+   }
+
+   /**
+    * Reads a whole test file. A problem in the file becomes an ERROR entry
+    * and reading stops there, the same place the old runner stopped.
+    */
+   static TestSuite read(Scanner file) {
+      ArrayList<Entry> entries = new ArrayList<>();
+      while (file.hasNextLine()) {
+         String input = file.nextLine();
+         if (input.toLowerCase().startsWith("<timeout")) {
+            String lower = input.toLowerCase();
+            int startIndex = input.indexOf("=") + 1;
+            int endIndex = input.indexOf(">");
+            try {
+               int millis = Integer.parseInt(input.substring(startIndex, endIndex).trim());
+               Kind kind = lower.contains("test=") ? Kind.TEST_TIMEOUT : Kind.SECTION_TIMEOUT;
+               entries.add(new Entry(kind, input, null, 0, millis));
+               continue;
+            } catch (RuntimeException e) {
+               entries.add(error("ERROR in test file. Bad timeout: " + input));
+               break;
+            }
+         }
+         if (input.equalsIgnoreCase("// subtotal")) {
+            entries.add(new Entry(Kind.SUBTOTAL, input, null, 0, 0));
+            continue;
+         } else if (input.startsWith("//")) {
+            String comment = input.length() > 3 ? input.substring(3) : "";
+            String source = input.equals(commentLine(comment)) ? null : input;
+            entries.add(new Entry(Kind.COMMENT, comment, null, 0, 0, source));
+            continue;
+         }
+         if (!file.hasNextLine()) {
+            entries.add(error("ERROR in test file. Expected integer for count of lines."));
+            break;
+         }
+
+         String lineAndPts = file.nextLine();
+         String[] lineSplit = lineAndPts.split(" ");
+         int answerCount;
+         double pointsWorth;
+         try {
+            answerCount = Integer.parseInt(lineSplit[0]);
+            // any answer of zero length is not worth any points
+            // because there is no validation that can be done
+            pointsWorth = answerCount > 0 ? 1 : 0;
+            if (lineSplit.length > 1) {
+               pointsWorth = Double.parseDouble(lineSplit[1]);
+            }
+         } catch (NumberFormatException e) {
+            entries.add(error("ERROR in test file. Expected integer for count of lines. Found: " + lineAndPts));
+            break;
+         }
+         String[] expected = new String[Math.max(answerCount, 0)];
+         int line = 0;
+         while (line < expected.length && file.hasNextLine()) {
+            expected[line++] = file.nextLine();
+         }
+         if (line < expected.length) {
+            entries.add(error("ERROR in test file. Unexpected end of file."));
+            break;
+         }
+         String source = lineAndPts.equals(countLine(answerCount, pointsWorth)) ? null : lineAndPts;
+         entries.add(new Entry(Kind.TEST, input, expected, pointsWorth, 0, source));
+      }
+      return new TestSuite(entries);
+   }
+
+   /**
+    * Reads a test file in the binary format. The file is mapped into memory
+    * and only the strings are copied out of it.
+    */
+   static TestSuite readBinary(Path file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         long size = channel.size();
+         if (size > Integer.MAX_VALUE) {
+            throw new IOException("Test file is too large: " + file);
+         }
+         ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+         if (size < 8 || in.getInt() != MAGIC) {
+            throw new IOException("Not a binary test file: " + file);
+         }
+         Kind[] kinds = Kind.values();
+         int count = in.getInt();
+         // every entry takes at least a byte, so a count bigger than what
+         // is left is damage, and mustn't be allocated for
+         if (count < 0 || count > in.remaining()) {
+            throw new IOException("Binary test file is damaged: " + file);
+         }
+         ArrayList<Entry> entries = new ArrayList<>(count);
+         byte[] scratch = new byte[256];
+         for (int i = 0; i < count; i++) {
+            int header = in.get();
+            Kind kind = kinds[header & KIND_MASK];
+            if (kind == Kind.TEST) {
+               double points = (header & HAS_POINTS) != 0 ? in.getDouble() : -1;
+               String[] expected = new String[readCount(in)];
+               if (points < 0) {
+                  points = expected.length > 0 ? 1 : 0;
+               }
+               String command = readString(in, scratch);
+               for (int line = 0; line < expected.length; line++) {
+                  expected[line] = readString(in, scratch);
+               }
+               String source = (header & HAS_SOURCE) != 0 ? readString(in, scratch) : null;
+               entries.add(new Entry(kind, command, expected, points, 0, source));
+            } else if (kind == Kind.TEST_TIMEOUT || kind == Kind.SECTION_TIMEOUT) {
+               int millis = readVarint(in);
+               entries.add(new Entry(kind, readString(in, scratch), null, 0, millis));
+            } else {
+               String text = readString(in, scratch);
+               String source = (header & HAS_SOURCE) != 0 ? readString(in, scratch) : null;
+               entries.add(new Entry(kind, text, null, 0, 0, source));
+            }
+         }
+         return new TestSuite(entries);
+      } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+         throw new IOException("Binary test file is cut short or damaged: " + file);
+      }
+   }
+
+   void writeBinary(Path file) throws IOException {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+         out.writeInt(MAGIC);
+         out.writeInt(entries.size());
+         for (Entry entry : entries) {
+            if (entry.kind == Kind.TEST) {
+               // the points are only written when they aren't the default
+               double defaultPoints = entry.expected.length > 0 ? 1 : 0;
+               int header = entry.kind.ordinal() | (entry.source != null ? HAS_SOURCE : 0);
+               if (entry.points == defaultPoints) {
+                  out.writeByte(header);
+               } else {
+                  out.writeByte(header | HAS_POINTS);
+                  out.writeDouble(entry.points);
+               }
+               writeVarint(out, entry.expected.length);
+               writeString(out, entry.text);
+               for (String line : entry.expected) {
+                  writeString(out, line);
+               }
+               if (entry.source != null) {
+                  writeString(out, entry.source);
+               }
+            } else if (entry.kind == Kind.TEST_TIMEOUT || entry.kind == Kind.SECTION_TIMEOUT) {
+               // a negative limit is off, the same as 0
+               out.writeByte(entry.kind.ordinal());
+               writeVarint(out, Math.max(entry.millis, 0));
+               writeString(out, entry.text);
+            } else {
+               out.writeByte(entry.kind.ordinal() | (entry.source != null ? HAS_SOURCE : 0));
+               writeString(out, entry.text);
+               if (entry.source != null) {
+                  writeString(out, entry.source);
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Writes the suite in the text format, with the same lines it was read
+    * from. An ERROR entry can't be written, so the file stops there.
+    *
+    * @return false if the suite had an error and was cut short
+    */
+   boolean writeText(Path file) throws IOException {
+      try (BufferedWriter out = Files.newBufferedWriter(file)) {
+         for (Entry entry : entries) {
+            if (entry.kind == Kind.TEST) {
+               out.write(entry.text);
+               out.newLine();
+               out.write(entry.source != null ? entry.source : countLine(entry.expected.length, entry.points));
+               out.newLine();
+               for (String line : entry.expected) {
+                  out.write(line);
+                  out.newLine();
+               }
+            } else if (entry.kind == Kind.COMMENT) {
+               out.write(entry.source != null ? entry.source : commentLine(entry.text));
+               out.newLine();
+            } else if (entry.kind == Kind.ERROR) {
+               return false;
+            } else {
+               out.write(entry.text);
+               out.newLine();
+            }
+         }
+      }
+      return true;
+   }
+
+   // the line after a test's command. The points are only written when they
+   // aren't the default, and whole points without a .0.
+   private static String countLine(int count, double points) {
+      double defaultPoints = count > 0 ? 1 : 0;
+      if (points == defaultPoints) {
+         return Integer.toString(count);
+      }
+      if (points == (long) points) {
+         return count + " " + (long) points;
+      }
+      return count + " " + points;
+   }
+
+   private static String commentLine(String comment) {
+      return "// " + comment;
+   }
+
+   private static int readVarint(ByteBuffer in) {
+      int value = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+         byte b = in.get();
+         value |= (b & 0x7F) << shift;
+         if (b >= 0) {
+            return value;
+         }
+      }
+      throw new IndexOutOfBoundsException("varint is too long");
+   }
+
+   private static void writeVarint(DataOutputStream out, int value) throws IOException {
+      while ((value & ~0x7F) != 0) {
+         out.writeByte((value & 0x7F) | 0x80);
+         value >>>= 7;
+      }
+      out.writeByte(value);
+   }
+
+   // a count of things that each take at least a byte, checked against
+   // what is left before anything is allocated for them
+   private static int readCount(ByteBuffer in) {
+      int count = readVarint(in);
+      if (count < 0 || count > in.remaining()) {
+         throw new IndexOutOfBoundsException("count " + count + " is past the end of the file");
+      }
+      return count;
+   }
+
+   private static String readString(ByteBuffer in, byte[] scratch) {
+      int length = readCount(in);
+      byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+      in.get(bytes, 0, length);
+      return new String(bytes, 0, length, StandardCharsets.UTF_8);
+   }
+
+   private static void writeString(DataOutputStream out, String text) throws IOException {
+      byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+      writeVarint(out, bytes.length);
+      out.write(bytes);
+   }
+
+   private static Entry error(String message) {
+      return new Entry(Kind.ERROR, message, null, 0, 0);
+   }
+}
@@ -0,0 +1,687 @@
+package fraccalc;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.io.*;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * Executes Unit Tests by loading a file with commands, calling processCommand()
+ * and comparing the result with the expected results. It will sum up points. It
+ * may have sub sections. It will generate a summary report at the end. Can
+ * create unit test files by recording a session.
+ *
+ *
+ */
+public class UnitTestRunner {
+
+   public interface CommandHandler {
+      public String processCommand(String cmd);
+   }
+
+   // records the session while a "test create" is on
+   private static SessionRecorder recorder = null;
+   
+   // set while a recorded command runs. processCommand is public and may
+   // be called from any thread, so it is volatile.
+   private static volatile boolean callingProcess = false;
+
+   /**
+    * Processes the command if it is a Test command
+    *
+    * @param input The command string that the user entered to be processed.
+    * @return true if the command was a Test command. This means that the caller
+    *         should ignore the input. False means the caller should proceed to process
+    *         the command.
+    */
+   public static boolean processCommand(String input, CommandHandler cmdHandler) {
+      // avoid infinite recursion here
+      if (callingProcess) {
+         // don't handle the command.
+         return false;
+      }
+      
+      if (generateTestCommand(input) || convertTestCommand(input) || runTestCommand(input, cmdHandler)) {
+         return true;
+      } else if (recorder != null) {
+         // check for the "quit" command.
+         if (input.equalsIgnoreCase("quit")) {
+            // close the test file
+            // return as not processed
+            stopRecording();
+            return false;
+         }
+      
+         // get the output from the CommandHandler
+         callingProcess = true;
+         String result;
+         try {
+            result = cmdHandler.processCommand(input);
+         } finally {
+            // reset to allow entry
+            callingProcess = false;
+         }
+         // the recorder writes the command and results to the file on its
+         // own thread, so recording doesn't slow the command down
+         recorder.record(input, result);
+         if (result != null && result.length() > 0) {
+            System.out.println(result);
+         }
+         
+         return true;
+      }
+   
+      // this was not a test command
+      return false;
+   }
+
+   private static void runCheckpointTests(String checkpoint, boolean breakOnFail, int threads,
+         CommandHandler cmdHandler) {
+      // use the binary copy of the file if it is up to date
+      File text = new File("tests_checkpoint" + checkpoint + ".txt");
+      File binary = new File("tests_checkpoint" + checkpoint + TestSuite.BINARY_EXTENSION);
+      boolean useBinary = binary.exists() && (!text.exists() || binary.lastModified() >= text.lastModified());
+      runTests((useBinary ? binary : text).getPath(), breakOnFail, threads, cmdHandler);
+   }
+
+   /**
+    * check if input is: test create #
+    * 
+    * if so, it will redirect output to a file. When done with the tests, type:
+    * test off
+    * 
+    * @param input The command string that the user entered to be processed.
+    * @return true if the command was processed
+    */
+   private static boolean generateTestCommand(String input) {
+      // get the tokens
+      boolean retValue = false;
+      String tokens[] = input.split(" ");
+      if (tokens.length < 2) {
+         return retValue;
+      }
+   
+      if ("test".equalsIgnoreCase(tokens[0])) {
+         if ("create".equalsIgnoreCase(tokens[1]) && tokens.length > 2) {
+            // only one test file is recorded at a time
+            stopRecording();
+            try {
+               recorder = new SessionRecorder(new File("tests_checkpoint" + tokens[2] + ".txt").toPath());
+            } catch (Exception e) {
+               System.out.println(e.getMessage());
+               e.printStackTrace();
+            }
+            retValue = true;
+         } else if (recorder != null && "end".equalsIgnoreCase(tokens[1])) {
+            // creating the test is complete. Turn it off.
+            // flush file and close it up.
+            stopRecording();
+            retValue = true;
+         }
+      }
+   
+      return retValue;
+   }
+
+   // waits for the recorder to write everything, and closes the file
+   private static void stopRecording() {
+      if (recorder == null) {
+         return;
+      }
+      try {
+         recorder.close();
+         if (recorder.dropped() > 0) {
+            System.out.println(recorder.dropped() + " commands were not recorded because the recorder fell behind.");
+         }
+      } catch (IOException e) {
+         System.out.println("Cannot write test file. Here are details:");
+         System.out.println(e.getMessage());
+      }
+      recorder = null;
+   }
+
+   /**
+    * check if input is: test convert # [text]
+    * 
+    * if so, it converts tests_checkpoint#.txt to the binary format in
+    * tests_checkpoint#.bin, which is faster to run. With text at the end, it
+    * converts the binary file back to text.
+    * 
+    * @param input The command string that the user entered to be processed.
+    * @return true if the command was processed
+    */
+   private static boolean convertTestCommand(String input) {
+      String tokens[] = input.split(" ");
+      if (tokens.length < 3 || !"test".equalsIgnoreCase(tokens[0]) || !"convert".equalsIgnoreCase(tokens[1])) {
+         return false;
+      }
+   
+      File text = new File("tests_checkpoint" + tokens[2] + ".txt");
+      File binary = new File("tests_checkpoint" + tokens[2] + TestSuite.BINARY_EXTENSION);
+      boolean toText = tokens.length > 3 && "text".equalsIgnoreCase(tokens[3]);
+      File from = toText ? binary : text;
+      File to = toText ? text : binary;
+      try {
+         TestSuite suite = TestSuite.read(from);
+         if (toText) {
+            if (!suite.writeText(to.toPath())) {
+               System.out.println("The test file has an error, so only the tests before it were converted.");
+            }
+         } else {
+            suite.writeBinary(to.toPath());
+         }
+         System.out.println("Converted " + suite.testCount() + " tests from " + from + " to " + to);
+      } catch (IOException e) {
+         System.out.println("Cannot convert test file. Here are details:");
+         System.out.println(e);
+      }
+      return true;
+   }
+
+   /**
+    * If the input is a Test command, it runs the series of tests found in that
+    * file. The command is in the format:
+    * <ul>
+    * <li>test {checkpoint name/#} [boolean:break_on_fail] [int:threads]</li>
+    * <li>Examples:
+    * <ul>
+    * <li>test 1</li>
+    * <li>test final</li>
+    * <li>test extra true</li>
+    * <li>test final false 8</li>
+    * </ul>
+    * </li>
+    * </ul>
+    *
+    * The [boolean:break_on_fail] is defaulted to FALSE. The tests are run on a
+    * pool of [int:threads] threads, one by default, see
+    * {@link #runTests(TestSuite, int, boolean, ArrayList, CommandHandler)}.
+    *
+    *
+    * @param input The command that the user input.
+    * @return true if the was a Test command and tests were run
+    */
+   private static boolean runTestCommand(String input, CommandHandler cmdHandler) {
+      // get the tokens
+      Scanner parser = new Scanner(input);
+      boolean retValue = false;
+   
+      if ("test".equalsIgnoreCase(parser.next())) {
+         String checkpoint;
+         
+         // default to stopping on a test failing
+         boolean breakOnFail = true;
+         int threads = 1;
+      
+         if (parser.hasNext()) {
+            checkpoint = parser.next();
+         
+            // check for one optional boolean value
+            if (parser.hasNextBoolean()) {
+               breakOnFail = parser.nextBoolean();
+            }
+            // and an optional number of threads
+            if (parser.hasNextInt()) {
+               threads = parser.nextInt();
+            }
+         
+            // execute the tests
+            runCheckpointTests(checkpoint, breakOnFail, threads, cmdHandler);
+         
+            // tests were processed
+            retValue = true;
+         }
+      }
+   
+      // avoid leaks, or at least warnings of leaks
+      parser.close();
+   
+      return retValue;
+   }
+
+   /**
+    * This will open a file and run the commands found inside of it. Subsequent
+    * lines will contain the expected output of running the command. The format is:
+    * <p>
+    * &lt;command&gt; &lt;# of lines in expected output&gt; &lt;expected output, if
+    * any&gt; Examples include:
+    * <p>
+    * a1 = 7 0 value a1 1 7.0
+    *
+    * @param filename    is the name of the test file
+    * @param breakOnFail If true, stop at the first failure
+    */
+   static void runTests(String filename, boolean breakOnFail, CommandHandler cmdHandler) {
+      runTests(filename, breakOnFail, 1, cmdHandler);
+   }
+
+   /**
+    * Runs the tests in a file as above, on the given number of threads.
+    *
+    * @param filename    is the name of the test file
+    * @param breakOnFail If true, stop at the first failure
+    * @param threads     The number of threads to run the tests on
+    */
+   static void runTests(String filename, boolean breakOnFail, int threads, CommandHandler cmdHandler) {
+      File f = null;
+      try {
+         // load the file of test cases, in the text or binary format
+         f = new File(filename);
+         TestSuite suite = TestSuite.read(f);
+         ArrayList<String> summary = new ArrayList<>();
+         runTests(suite, Math.max(threads, 1), breakOnFail, summary, cmdHandler);
+         // print out the summary
+         if (summary.size() > 1) {
+            System.out.println("Summary Report:");
+            for (String line : summary) {
+               System.out.println(line);
+            }
+         }
+      } catch (FileNotFoundException | NoSuchFileException e) {
+         System.out.println("Cannot find test file. Here are details:");
+         if (f != null) {
+            System.out.println(" path of file: " + f.getAbsolutePath());
+         }
+         System.out.println(e.getMessage());
+      } catch (IOException e) {
+         System.out.println("Cannot read test file. Here are details:");
+         System.out.println(e.getMessage());
+      }
+   }
+
+   /**
+    * Runs the tests of a suite on a pool of worker threads, and then reports
+    * the results in file order, adding the sections to the summary. With more
+    * than one thread, the CommandHandler must be safe to call from several
+    * threads at once, and the tests must not depend on each other.
+    * <p>
+    * When breaking on a failure, the workers skip the tests after the first
+    * failure they find, and the report stops at that failure.
+    * <p>
+    * A test that goes over its time limit, or hasn't finished when the time
+    * limit of its section runs out, fails and the rest of the tests still
+    * run. Its worker is interrupted, and a thread is added to the pool in
+    * case the command doesn't stop. The report shows how long each test took.
+    *
+    * @param suite       The tests read from a file
+    * @param threads     The number of worker threads
+    * @param breakOnFail If true, then stop tests at first failure
+    * @param summary     The summary data as a list of strings
+    * @return Total points possible
+    */
+   private static double runTests(TestSuite suite, int threads, boolean breakOnFail, ArrayList<String> summary,
+         CommandHandler cmdHandler) {
+   
+      // all tests will be run using the CommandHandler
+      if (cmdHandler == null) {
+         System.out.println("No CommandHandler means No tests run.");
+         return 0;
+      }
+   
+      TestRun run = new TestRun(threads, breakOnFail, cmdHandler);
+      try {
+         List<TestSuite.Entry> entries = suite.entries();
+         ArrayList<TestTask> tasks = new ArrayList<>(suite.testCount());
+         long testLimit = 0;
+         Section section = null;
+         for (int i = 0; i < entries.size(); i++) {
+            TestSuite.Entry entry = entries.get(i);
+            if (entry.kind == TestSuite.Kind.TEST_TIMEOUT) {
+               testLimit = TimeUnit.MILLISECONDS.toNanos(Math.max(entry.millis, 0));
+            } else if (entry.kind == TestSuite.Kind.SECTION_TIMEOUT) {
+               section = entry.millis > 0 ? new Section(run, entry.millis) : null;
+            } else if (entry.kind == TestSuite.Kind.SUBTOTAL) {
+               section = null;
+            } else if (entry.kind == TestSuite.Kind.TEST) {
+               TestTask task = new TestTask(run, entry, i, testLimit, section);
+               if (section != null) {
+                  section.tasks.add(task);
+               }
+               tasks.add(task);
+            }
+         }
+         for (TestTask task : tasks) {
+            run.pool.execute(task);
+         }
+         return report(entries, tasks, breakOnFail, summary);
+      } finally {
+         run.pool.shutdownNow();
+         run.watchdog.shutdownNow();
+      }
+   }
+
+   /**
+    * What the tests of one run share.
+    */
+   private static final class TestRun {
+      final ThreadPoolExecutor pool;
+      // ends the tests that run out of time
+      final ScheduledThreadPoolExecutor watchdog;
+      final boolean breakOnFail;
+      final CommandHandler cmdHandler;
+      // the index of the first failing test, when breaking on a failure
+      final AtomicInteger firstFailure = new AtomicInteger(Integer.MAX_VALUE);
+   
+      TestRun(int threads, boolean breakOnFail, CommandHandler cmdHandler) {
+         pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+               daemon("UnitTestRunner worker"));
+         watchdog = new ScheduledThreadPoolExecutor(1, daemon("UnitTestRunner watchdog"));
+         watchdog.setRemoveOnCancelPolicy(true);
+         this.breakOnFail = breakOnFail;
+         this.cmdHandler = cmdHandler;
+      }
+   
+      void failed(int index) {
+         if (breakOnFail) {
+            firstFailure.accumulateAndGet(index, Math::min);
+         }
+      }
+   
+      // replaces a worker that may be stuck in a command that timed out
+      synchronized void addWorker() {
+         pool.setMaximumPoolSize(pool.getMaximumPoolSize() + 1);
+         pool.setCorePoolSize(pool.getCorePoolSize() + 1);
+      }
+   
+      // the command that timed out has returned, so its worker is free again
+      synchronized void removeWorker() {
+         pool.setCorePoolSize(pool.getCorePoolSize() - 1);
+         pool.setMaximumPoolSize(pool.getMaximumPoolSize() - 1);
+      }
+   
+      // daemon threads, so a command that never returns can't keep the program running
+      private static ThreadFactory daemon(String name) {
+         return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+         };
+      }
+   }
+
+   /**
+    * The tests between a section time limit and the end of the section. The
+    * clock starts when the first of them starts.
+    */
+   private static final class Section {
+      final TestRun run;
+      final int millis;
+      final ArrayList<TestTask> tasks = new ArrayList<>();
+      private final AtomicBoolean started = new AtomicBoolean();
+   
+      Section(TestRun run, int millis) {
+         this.run = run;
+         this.millis = millis;
+      }
+   
+      void start() {
+         if (started.compareAndSet(false, true)) {
+            run.watchdog.schedule(this::expire, millis, TimeUnit.MILLISECONDS);
+         }
+      }
+   
+      private void expire() {
+         String reason = String.format(" failed: section time limit of %d ms ran out\n", millis);
+         for (TestTask task : tasks) {
+            task.timeOut(reason);
+         }
+      }
+   }
+
+   /**
+    * The result of running one test on a worker thread.
+    */
+   private static final class Outcome {
+      static final Outcome SKIPPED = new Outcome(null, null, null, 0);
+   
+      final String actual;
+      // what didn't match, or null if the test passed
+      final String failure;
+      final Throwable error;
+      final long nanos;
+   
+      Outcome(String actual, String failure, Throwable error, long nanos) {
+         this.actual = actual;
+         this.failure = failure;
+         this.error = error;
+         this.nanos = nanos;
+      }
+   
+      boolean failed() {
+         return failure != null || error != null;
+      }
+   }
+
+   /**
+    * Runs one test on a worker, unless its time runs out first.
+    */
+   private static final class TestTask implements Runnable {
+      final TestRun run;
+      final TestSuite.Entry test;
+      final int index;
+      // the time limit in nanoseconds, or 0 for none
+      final long limit;
+      final Section section;
+      final CompletableFuture<Outcome> outcome = new CompletableFuture<>();
+   
+      // the worker and start time while the test runs, guarded by this
+      private Thread runner;
+      private long start;
+      private boolean finished;
+      private boolean replaced;
+   
+      TestTask(TestRun run, TestSuite.Entry test, int index, long limit, Section section) {
+         this.run = run;
+         this.test = test;
+         this.index = index;
+         this.limit = limit;
+         this.section = section;
+      }
+   
+      @Override
+      public void run() {
+         if (index > run.firstFailure.get()) {
+            // an earlier test failed, so this one will never be reported
+            outcome.complete(Outcome.SKIPPED);
+            return;
+         }
+         synchronized (this) {
+            if (finished) {
+               // the section ran out of time before this test started
+               return;
+            }
+            runner = Thread.currentThread();
+            start = System.nanoTime();
+         }
+         if (section != null) {
+            section.start();
+         }
+         ScheduledFuture<?> timer = null;
+         if (limit > 0) {
+            String reason = String.format(" failed: time limit of %d ms ran out\n",
+                  TimeUnit.NANOSECONDS.toMillis(limit));
+            timer = run.watchdog.schedule(() -> timeOut(reason), limit, TimeUnit.NANOSECONDS);
+         }
+      
+         String actual = null;
+         String failure = null;
+         Throwable error = null;
+         try {
+            actual = run.cmdHandler.processCommand(test.text);
+            failure = test.expected.length == 0 ? null : mismatch(actual, test.expected);
+         } catch (StackOverflowError | RuntimeException e) {
+            error = e;
+         }
+         long nanos = System.nanoTime() - start;
+         if (timer != null) {
+            timer.cancel(false);
+         }
+      
+         synchronized (this) {
+            runner = null;
+            if (replaced) {
+               run.removeWorker();
+            }
+            if (!finished) {
+               finished = true;
+               Outcome result = new Outcome(actual, failure, error, nanos);
+               if (result.failed()) {
+                  run.failed(index);
+               }
+               outcome.complete(result);
+            }
+         }
+         // clear an interrupt from a time limit that ran out as the test finished
+         Thread.interrupted();
+      }
+   
+      void timeOut(String reason) {
+         long nanos = 0;
+         synchronized (this) {
+            if (finished) {
+               return;
+            }
+            finished = true;
+            if (runner != null) {
+               nanos = System.nanoTime() - start;
+               runner.interrupt();
+               run.addWorker();
+               replaced = true;
+            }
+         }
+         run.failed(index);
+         outcome.complete(new Outcome(null, reason, null, nanos));
+      }
+   }
+
+   /**
+    * Prints the outcomes of the tests in file order as they become known, and
+    * adds the sections to the summary.
+    *
+    * @return Total points possible
+    */
+   private static double report(List<TestSuite.Entry> entries, List<TestTask> tasks, boolean breakOnFail,
+         ArrayList<String> summary) {
+      double points = 0;
+      double total = 0.0;
+      double subSectionPoints = 0;
+      double subSectionTotal = 0;
+      long totalNanos = 0;
+      long slowestNanos = -1;
+      String slowest = null;
+      int test = 0;
+   
+      for (TestSuite.Entry entry : entries) {
+         if (entry.kind == TestSuite.Kind.ERROR) {
+            System.out.println(entry.text);
+            return total;
+         } else if (entry.kind == TestSuite.Kind.SUBTOTAL) {
+            addSubTotal(summary, subSectionPoints, subSectionTotal, points, total);
+            subSectionPoints = 0;
+            subSectionTotal = 0;
+            continue;
+         } else if (entry.kind == TestSuite.Kind.COMMENT) {
+            String s = "\t" + entry.text;
+            summary.add(s);
+            System.out.println("\n" + s);
+            continue;
+         } else if (entry.kind != TestSuite.Kind.TEST) {
+            continue;
+         }
+      
+         Outcome outcome = tasks.get(test++).outcome.join();
+         total += entry.points;
+         subSectionTotal += entry.points;
+         totalNanos += outcome.nanos;
+         if (outcome.nanos > slowestNanos) {
+            slowestNanos = outcome.nanos;
+            slowest = entry.text;
+         }
+      
+         System.out.printf("Running Test [%s] (%.3f ms)", entry.text, outcome.nanos / 1e6);
+         if (outcome.error instanceof StackOverflowError) {
+            System.out.println(" Failed with Stack Overflow.");
+            if (breakOnFail) {
+               return total;
+            }
+         } else if (outcome.error != null) {
+            System.out.println(" Failed with exception. Here are details:");
+            outcome.error.printStackTrace();
+            System.out.println(outcome.error.getMessage());
+            if (breakOnFail) {
+               return total;
+            }
+         } else if (outcome.failure == null) {
+            System.out.printf(" passed  (+%.1f pts)\n", entry.points);
+            if (entry.expected.length == 0) {
+               // output the result, just so we can see it.
+               System.out.println("[ " + outcome.actual + " ]");
+            }
+            points += entry.points;
+            subSectionPoints += entry.points;
+         } else {
+            System.out.print(outcome.failure);
+            if (breakOnFail) {
+               System.out.println("Set to break on fail");
+               return total;
+            }
+         }
+      }
+   
+      if (slowest != null) {
+         System.out.printf("Test time: %.1f ms in all, slowest %.3f ms [%s]\n", totalNanos / 1e6, slowestNanos / 1e6,
+               slowest);
+      }
+      String s = String.format("SCORE: %.1f / %.1f\n", points, total);
+      if (summary.size() == 0) {
+         System.out.print(s);
+      }
+      summary.add(s);
+   
+      return total;
+   }
+
+   private static void addSubTotal(ArrayList<String> summary, double subSectionPoints, double subSectionTotal,
+         double points, double total) {
+      String s = String.format("\tSection Sub-Total: %.1f / %.1f\t\tTOTAL: %.1f / %.1f", subSectionPoints,
+            subSectionTotal, points, total);
+      System.out.println(s);
+      s = summary.isEmpty() ? "" : summary.remove(summary.size() - 1);
+      s = String.format("\t%.1f / %.1f\tTOTAL: %.1f / %.1f\t%s", subSectionPoints, subSectionTotal, points, total,
+            s);
+      summary.add(s);
+   }
+
+   /**
+    * Compares the output of a command with the expected lines.
+    *
+    * @return null if they match, otherwise a description of the difference
+    */
+   private static String mismatch(String actualFull, String[] expected) {
+      String[] actual = actualFull.split("\\n");
+   
+      for (int iexpected = 0; iexpected < expected.length; iexpected++) {
+      
+         // check for insufficient output in actual
+         if (iexpected == actual.length) {
+            return String.format(" failed: expected more output. After %d lines\n\tExpected: \"%s\"\n", iexpected,
+                  expected[iexpected]);
+         }
+      
+         if (!actual[iexpected].equalsIgnoreCase(expected[iexpected])) {
+            return String.format(" failure after %d lines:\n\texpected: \"%s\"\n\t  Actual: \"%s\"\n", iexpected,
+                  expected[iexpected], actual[iexpected]);
+         }
+      }
+   
+      if (actual.length > expected.length) {
+         return String.format(" failed: actual output was too long. %d lines okay.\n\tUnexpected: \"%s\"\n",
+               expected.length, actual[expected.length]);
+      }
+   
+      // All lines matched. Passed!
+      return null;
+   }
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+package fraccalc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class BatchEvaluatorTest {
+
+   @Test
+   void everyLineGivesOneLineInOrder() throws IOException {
+      StringBuilder input = new StringBuilder();
+      for (int i = 0; i < 50_000; i++) {
+         input.append(i).append("/7 + 1/").append(i % 9 + 1).append('\n');
+      }
+      String[] lines = run(input.toString(), 4, 1000);
+      assertEquals(50_000, lines.length);
+      for (int i = 0; i < lines.length; i += 997) {
+         assertEquals(FracCalc.evaluate(i + "/7 + 1/" + (i % 9 + 1)), lines[i]);
+      }
+   }
+
+   @Test
+   void commandsOtherThanExpressionsAreErrors() throws IOException {
+      boolean stats = Metrics.isEnabled();
+      long limit = FracCalc.limit;
+      double shadow = FracCalc.shadow.getRate();
+      String[] lines = run("1/2 + 1/3\nstats on\nlimit 3\nshadow 1\nhelp\nsum build.txt\n1/2 / 0\n", 2, 2);
+      assertEquals(7, lines.length);
+      assertEquals("5/6", lines[0]);
+      for (int i = 1; i < lines.length; i++) {
+         assertTrue(lines[i].startsWith("ERROR"), lines[i]);
+      }
+      assertEquals(stats, Metrics.isEnabled());
+      assertEquals(limit, FracCalc.limit);
+      assertEquals(shadow, FracCalc.shadow.getRate());
+   }
+
+   private static String[] run(String input, int parallelism, int chunkSize) throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      BatchEvaluator.run(Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))),
+            Channels.newChannel(out), parallelism, chunkSize);
+      return out.toString(StandardCharsets.UTF_8).split("\n");
+   }
+}
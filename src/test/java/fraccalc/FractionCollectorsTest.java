@@ -0,0 +1,117 @@
+package fraccalc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the collectors and FractionStatistics against sums worked out over
+ * the LCM of the denominators in BigIntegers, on sequential and parallel
+ * streams.
+ */
+class FractionCollectorsTest {
+
+   @Test
+   void harmonicSumMatchesTheLcm() {
+      List<Fraction> values = new ArrayList<>();
+      for (int k = 1; k <= 1000; k++) {
+         values.add(Fraction.of(1, k));
+      }
+      // 1/1 + ... + 1/1000 is the sum of lcm/k over the lcm of 1..1000
+      BigInteger lcm = BigInteger.ONE;
+      for (int k = 1; k <= 1000; k++) {
+         BigInteger big = BigInteger.valueOf(k);
+         lcm = lcm.divide(lcm.gcd(big)).multiply(big);
+      }
+      BigInteger num = BigInteger.ZERO;
+      for (int k = 1; k <= 1000; k++) {
+         num = num.add(lcm.divide(BigInteger.valueOf(k)));
+      }
+      Fraction expected = Fraction.of(num, lcm);
+      assertFalse(expected.fitsInLong());
+
+      assertEquals(expected, values.stream().collect(FractionCollectors.summing()));
+      assertEquals(expected, values.parallelStream().collect(FractionCollectors.summing()));
+      assertEquals(expected.divide(Fraction.of(1000)), values.parallelStream().collect(FractionCollectors.averaging()));
+      FractionStatistics statistics = values.parallelStream().collect(FractionCollectors.summarizing());
+      assertEquals(1000, statistics.getCount());
+      assertEquals(expected, statistics.getSum());
+      assertEquals(expected.divide(Fraction.of(1000)), statistics.getAverage());
+   }
+
+   @Test
+   void emptyStreams() {
+      assertEquals(Fraction.ZERO, Stream.<Fraction>empty().collect(FractionCollectors.summing()));
+      assertEquals(Fraction.ONE, Stream.<Fraction>empty().collect(FractionCollectors.multiplying()));
+      assertEquals(Fraction.ZERO, Stream.<Fraction>empty().collect(FractionCollectors.averaging()));
+      FractionStatistics statistics = Stream.<Fraction>empty().parallel().collect(FractionCollectors.summarizing());
+      assertEquals(0, statistics.getCount());
+      assertEquals(Fraction.ZERO, statistics.getSum());
+      assertEquals(Fraction.ZERO, statistics.getAverage());
+   }
+
+   @Test
+   void aSumTooBigForLongsComesBack() {
+      FractionStatistics statistics = new FractionStatistics();
+      statistics.accept(Fraction.of(Long.MAX_VALUE));
+      statistics.accept(Long.MAX_VALUE, 1);
+      assertFalse(statistics.getSum().fitsInLong());
+      statistics.accept(Fraction.of(-Long.MAX_VALUE));
+      statistics.accept(-Long.MAX_VALUE + 5, 1);
+      assertTrue(statistics.getSum().fitsInLong());
+      assertEquals(Fraction.of(5), statistics.getSum());
+
+      // denominators whose product is too big for a long
+      long d1 = (1L << 62) - 1;
+      long d2 = (1L << 61) - 1;
+      statistics.accept(1, d1);
+      statistics.accept(Fraction.of(1, d2));
+      assertFalse(statistics.getSum().fitsInLong());
+      statistics.accept(-1, d1);
+      statistics.accept(2, -2 * d2);
+      assertTrue(statistics.getSum().fitsInLong());
+      assertEquals(Fraction.of(5), statistics.getSum());
+      assertEquals(8, statistics.getCount());
+      assertEquals(Fraction.of(5, 8), statistics.getAverage());
+   }
+
+   @Test
+   void parallelStreamsCombineTheirParts() {
+      List<Fraction> values = new ArrayList<>();
+      BigInteger num = BigInteger.ZERO;
+      BigInteger den = BigInteger.valueOf(27720); // the lcm of 1..12
+      for (int k = 0; k < 20_000; k++) {
+         int d = k % 12 + 1;
+         int n = k % 7 - 3;
+         values.add(Fraction.of(n, d));
+         num = num.add(BigInteger.valueOf(n).multiply(den.divide(BigInteger.valueOf(d))));
+      }
+      Fraction expected = Fraction.of(num, den);
+      assertEquals(expected, values.parallelStream().collect(FractionCollectors.summing()));
+      FractionStatistics statistics = values.parallelStream().collect(FractionCollectors.summarizing());
+      assertEquals(20_000, statistics.getCount());
+      assertEquals(expected, statistics.getSum());
+
+      // the product of (k + 1)/k telescopes to 1001
+      assertEquals(Fraction.of(1001), IntStream.rangeClosed(1, 1000).parallel()
+            .mapToObj(k -> Fraction.of(k + 1, k)).collect(FractionCollectors.multiplying()));
+
+      // combine adds the other part in and leaves it as it was
+      FractionStatistics first = new FractionStatistics();
+      FractionStatistics second = new FractionStatistics();
+      for (int k = 0; k < values.size(); k++) {
+         (k < 7_000 ? first : second).accept(values.get(k));
+      }
+      Fraction secondSum = second.getSum();
+      assertSame(first, first.combine(second));
+      assertEquals(expected, first.getSum());
+      assertEquals(20_000, first.getCount());
+      assertEquals(secondSum, second.getSum());
+      assertEquals(13_000, second.getCount());
+   }
+}
@@ -0,0 +1,51 @@
+package fraccalc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that FracCalc.simplify, which formats through FractionFormat and the
+ * SmallFractions tables, prints what the original simplify in LegacyFracCalc
+ * printed, over a grid of signed numerators and denominators.
+ */
+class FractionFormatTest {
+
+   private static final int[] EDGES = { Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -1_000_000_007, -65_536, -257,
+         -256, -65, -64, 64, 65, 256, 257, 65_536, 1_000_000_007, Integer.MAX_VALUE - 1, Integer.MAX_VALUE };
+
+   @Test
+   void simplifyMatchesTheOriginalAndMixed() {
+      int[] values = new int[121 + EDGES.length];
+      for (int i = 0; i <= 120; i++) {
+         values[i] = i - 60;
+      }
+      System.arraycopy(EDGES, 0, values, 121, EDGES.length);
+      for (int num : values) {
+         for (int den : values) {
+            if (den == 0) {
+               continue;
+            }
+            String expected = LegacyFracCalc.simplify(num, den);
+            assertEquals(expected, FracCalc.simplify(num, den), num + "/" + den);
+            if (num != Integer.MIN_VALUE || den != -1) {
+               assertEquals(expected, FractionFormat.MIXED.format(num, den), num + "/" + den);
+            }
+         }
+      }
+   }
+
+   @Test
+   void theOddCases() {
+      // a negative denominator keeps the original signs
+      assertEquals("-3 1/2", FracCalc.simplify(7, -2));
+      assertEquals("3 -1/-2", FracCalc.simplify(-7, -2));
+      assertEquals("0", FracCalc.simplify(0, -5));
+      // int division wraps Integer.MIN_VALUE / -1, and simplify always has
+      assertEquals("-2147483648", FracCalc.simplify(Integer.MIN_VALUE, -1));
+      assertEquals("2147483648", FractionFormat.MIXED.format(Integer.MIN_VALUE, -1));
+      assertThrows(ArithmeticException.class, () -> FracCalc.simplify(3, 0));
+      assertThrows(ArithmeticException.class, () -> FracCalc.simplify(0, 0));
+      assertThrows(ArithmeticException.class, () -> FractionFormat.MIXED.format(3, 0));
+   }
+}
@@ -0,0 +1,293 @@
+package fraccalc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks FractionMatrix against plain Gauss-Jordan elimination on rationals
+ * of BigIntegers, which reduces every cell after every step. The cells range
+ * from small fractions to ones whose products overflow longs, so both the
+ * long and the BigInteger elimination are covered. Matrices too big for the
+ * plain elimination to finish quickly are checked by multiplying back to
+ * the identity instead.
+ */
+class FractionMatrixTest {
+
+   @Test
+   void matchesNaiveElimination() {
+      Random random = new Random(7);
+      int singular = 0;
+      for (int trial = 0; trial < 600; trial++) {
+         int n = 1 + random.nextInt(7);
+         int columns = 1 + random.nextInt(3);
+         // small, medium and large enough for the longs to overflow
+         int range = trial % 3 == 0 ? 2 : trial % 3 == 1 ? 100 : 1_000_000_000;
+         int denominators = trial % 2 == 0 ? 1 : trial % 4 == 1 ? 12 : 1_000_000;
+         Fraction[][] a = random(random, n, n, range, denominators);
+         Fraction[][] b = random(random, n, columns, range, denominators);
+         if (trial % 10 == 0 && n > 1) {
+            // a row that is a multiple of another, so the matrix is singular
+            for (int j = 0; j < n; j++) {
+               a[n - 1][j] = a[0][j].multiply(Fraction.of(3));
+            }
+         }
+         if (!check(a, b)) {
+            singular++;
+         }
+      }
+      assertTrue(singular >= 50);
+   }
+
+   @Test
+   void cellsTooBigForLongs() {
+      Fraction huge = Fraction.of(Long.MAX_VALUE).multiply(Fraction.of(Long.MAX_VALUE - 2, 5));
+      Fraction[][] a = {
+            { huge, Fraction.of(1, 3), Fraction.of(Long.MAX_VALUE, 7) },
+            { Fraction.of(-2), huge.negate().add(Fraction.ONE), Fraction.of(5, Long.MAX_VALUE) },
+            { Fraction.of(Long.MAX_VALUE - 1, 3), Fraction.of(9), Fraction.of(-1, 2) } };
+      Fraction[][] b = { { Fraction.ONE }, { huge }, { Fraction.of(-7, 11) } };
+      assertTrue(check(a, b));
+
+      Fraction[][] edges = {
+            { Fraction.of(Long.MAX_VALUE), Fraction.of(Long.MAX_VALUE - 1) },
+            { Fraction.of(Long.MAX_VALUE - 1), Fraction.of(Long.MAX_VALUE - 2) } };
+      assertTrue(check(edges, new Fraction[][] { { Fraction.ONE }, { Fraction.ZERO } }));
+      assertEquals(Fraction.of(-1), FractionMatrix.of(edges).determinant());
+   }
+
+   @Test
+   void productMatchesNaiveProduct() {
+      Random random = new Random(11);
+      for (int trial = 0; trial < 300; trial++) {
+         int rows = 1 + random.nextInt(6);
+         int inner = 1 + random.nextInt(6);
+         int columns = 1 + random.nextInt(6);
+         int range = trial % 2 == 0 ? 20 : 1_000_000_000;
+         int denominators = trial % 3 == 0 ? 1 : 1_000_000;
+         Fraction[][] a = random(random, rows, inner, range, denominators);
+         Fraction[][] b = random(random, inner, columns, range, denominators);
+         Rational[][] expected = new Rational[rows][columns];
+         for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+               Rational sum = Rational.ZERO;
+               for (int k = 0; k < inner; k++) {
+                  sum = sum.add(Rational.of(a[i][k]).multiply(Rational.of(b[k][j])));
+               }
+               expected[i][j] = sum;
+            }
+         }
+         assertCells(expected, FractionMatrix.of(a).multiply(FractionMatrix.of(b)));
+      }
+   }
+
+   @Test
+   void largeInversesMultiplyBackToTheIdentity() {
+      // both are big enough for the steps and products to run in parallel.
+      // The larger one has whole cells, as with fractions it takes seconds.
+      Random random = new Random(13);
+      FractionMatrix a = FractionMatrix.of(random(random, 40, 40, 9, 12));
+      FractionMatrix inverse = a.inverse();
+      assertIdentity(a.multiply(inverse));
+      assertIdentity(inverse.multiply(a));
+      FractionMatrix b = FractionMatrix.of(random(random, 120, 120, 9, 1));
+      inverse = b.inverse();
+      assertIdentity(b.multiply(inverse));
+      assertIdentity(inverse.multiply(b));
+   }
+
+   @Test
+   void badShapesAreRefused() {
+      FractionMatrix wide = FractionMatrix.of(random(new Random(1), 2, 3, 5, 5));
+      assertThrows(IllegalArgumentException.class, wide::determinant);
+      assertThrows(IllegalArgumentException.class, wide::inverse);
+      assertThrows(IllegalArgumentException.class, () -> wide.multiply(wide));
+      FractionMatrix square = FractionMatrix.identity(3);
+      assertThrows(IllegalArgumentException.class, () -> square.solve(FractionMatrix.identity(2)));
+      assertThrows(IllegalArgumentException.class, () -> FractionMatrix.of(new Fraction[0][]));
+   }
+
+   // checks the determinant, solve and inverse against naive elimination,
+   // and returns false if the matrix is singular
+   private static boolean check(Fraction[][] a, Fraction[][] b) {
+      FractionMatrix matrix = FractionMatrix.of(a);
+      assertEquals(naiveDeterminant(a).toFraction(), matrix.determinant());
+      Rational[][] x = naiveSolve(a, b);
+      if (x == null) {
+         assertThrows(ArithmeticException.class, () -> matrix.solve(FractionMatrix.of(b)));
+         assertThrows(ArithmeticException.class, matrix::inverse);
+         return false;
+      }
+      assertCells(x, matrix.solve(FractionMatrix.of(b)));
+      assertCells(naiveSolve(a, identity(a.length)), matrix.inverse());
+      return true;
+   }
+
+   private static void assertCells(Rational[][] expected, FractionMatrix actual) {
+      assertEquals(expected.length, actual.rows());
+      assertEquals(expected[0].length, actual.columns());
+      for (int i = 0; i < expected.length; i++) {
+         for (int j = 0; j < expected[0].length; j++) {
+            assertEquals(expected[i][j].toFraction(), actual.get(i, j), "row " + i + ", column " + j);
+         }
+      }
+   }
+
+   private static void assertIdentity(FractionMatrix m) {
+      for (int i = 0; i < m.rows(); i++) {
+         for (int j = 0; j < m.columns(); j++) {
+            assertEquals(i == j ? Fraction.ONE : Fraction.ZERO, m.get(i, j));
+         }
+      }
+   }
+
+   private static Fraction[][] random(Random random, int rows, int columns, int range, int denominators) {
+      Fraction[][] a = new Fraction[rows][columns];
+      for (int i = 0; i < rows; i++) {
+         for (int j = 0; j < columns; j++) {
+            a[i][j] = Fraction.of(random.nextInt(2 * range + 1) - range, 1 + random.nextInt(denominators));
+         }
+      }
+      return a;
+   }
+
+   private static Fraction[][] identity(int n) {
+      Fraction[][] a = new Fraction[n][n];
+      for (int i = 0; i < n; i++) {
+         for (int j = 0; j < n; j++) {
+            a[i][j] = i == j ? Fraction.ONE : Fraction.ZERO;
+         }
+      }
+      return a;
+   }
+
+   // Gauss-Jordan elimination, or null if a is singular
+   private static Rational[][] naiveSolve(Fraction[][] a, Fraction[][] b) {
+      int n = a.length;
+      int columns = b[0].length;
+      Rational[][] m = new Rational[n][n + columns];
+      for (int i = 0; i < n; i++) {
+         for (int j = 0; j < n; j++) {
+            m[i][j] = Rational.of(a[i][j]);
+         }
+         for (int j = 0; j < columns; j++) {
+            m[i][n + j] = Rational.of(b[i][j]);
+         }
+      }
+      for (int k = 0; k < n; k++) {
+         int pivot = k;
+         while (pivot < n && m[pivot][k].isZero()) {
+            pivot++;
+         }
+         if (pivot == n) {
+            return null;
+         }
+         Rational[] row = m[k];
+         m[k] = m[pivot];
+         m[pivot] = row;
+         Rational scale = m[k][k];
+         for (int j = k; j < n + columns; j++) {
+            m[k][j] = m[k][j].divide(scale);
+         }
+         for (int i = 0; i < n; i++) {
+            Rational factor = m[i][k];
+            if (i != k && !factor.isZero()) {
+               for (int j = k; j < n + columns; j++) {
+                  m[i][j] = m[i][j].subtract(factor.multiply(m[k][j]));
+               }
+            }
+         }
+      }
+      Rational[][] x = new Rational[n][columns];
+      for (int i = 0; i < n; i++) {
+         System.arraycopy(m[i], n, x[i], 0, columns);
+      }
+      return x;
+   }
+
+   private static Rational naiveDeterminant(Fraction[][] a) {
+      int n = a.length;
+      Rational[][] m = new Rational[n][n];
+      for (int i = 0; i < n; i++) {
+         for (int j = 0; j < n; j++) {
+            m[i][j] = Rational.of(a[i][j]);
+         }
+      }
+      Rational determinant = Rational.ONE;
+      for (int k = 0; k < n; k++) {
+         int pivot = k;
+         while (pivot < n && m[pivot][k].isZero()) {
+            pivot++;
+         }
+         if (pivot == n) {
+            return Rational.ZERO;
+         }
+         if (pivot != k) {
+            Rational[] row = m[k];
+            m[k] = m[pivot];
+            m[pivot] = row;
+            determinant = determinant.negate();
+         }
+         determinant = determinant.multiply(m[k][k]);
+         for (int i = k + 1; i < n; i++) {
+            Rational factor = m[i][k].divide(m[k][k]);
+            for (int j = k; j < n; j++) {
+               m[i][j] = m[i][j].subtract(factor.multiply(m[k][j]));
+            }
+         }
+      }
+      return determinant;
+   }
+
+   // the reference arithmetic, in BigIntegers only, reduced after every step
+   private static final class Rational {
+      static final Rational ZERO = new Rational(BigInteger.ZERO, BigInteger.ONE);
+      static final Rational ONE = new Rational(BigInteger.ONE, BigInteger.ONE);
+
+      final BigInteger num;
+      final BigInteger den;
+
+      private Rational(BigInteger num, BigInteger den) {
+         BigInteger g = num.gcd(den);
+         if (den.signum() < 0) {
+            g = g.negate();
+         }
+         this.num = num.divide(g);
+         this.den = den.divide(g);
+      }
+
+      static Rational of(Fraction value) {
+         return new Rational(value.bigNumerator(), value.bigDenominator());
+      }
+
+      boolean isZero() {
+         return num.signum() == 0;
+      }
+
+      Rational add(Rational other) {
+         return new Rational(num.multiply(other.den).add(other.num.multiply(den)), den.multiply(other.den));
+      }
+
+      Rational subtract(Rational other) {
+         return add(other.negate());
+      }
+
+      Rational multiply(Rational other) {
+         return new Rational(num.multiply(other.num), den.multiply(other.den));
+      }
+
+      Rational divide(Rational other) {
+         return new Rational(num.multiply(other.den), den.multiply(other.num));
+      }
+
+      Rational negate() {
+         return new Rational(num.negate(), den);
+      }
+
+      Fraction toFraction() {
+         return Fraction.of(num, den);
+      }
+   }
+}
@@ -0,0 +1,223 @@
+package fraccalc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the long arithmetic, the promotion to BigInteger when it overflows,
+ * and the 128-bit compare against plain BigInteger arithmetic, with values
+ * chosen around the edges of a long.
+ */
+class FractionTest {
+
+   private static final long[] EDGES = { 0, 1, -1, 2, -2, 3, 10, Integer.MAX_VALUE, Integer.MIN_VALUE,
+         3037000499L, 3037000500L, -3037000500L, 1L << 32, (1L << 32) + 1, 1L << 62, -(1L << 62),
+         Long.MAX_VALUE / 2, Long.MAX_VALUE - 1, Long.MAX_VALUE, Long.MIN_VALUE + 1, Long.MIN_VALUE };
+
+   private static final int ROUNDS = 200_000;
+   // most random pairs overflow, and those go through BigIntegers
+   private static final int ARITHMETIC_ROUNDS = 20_000;
+
+   @Test
+   void arithmeticMatchesBigIntegers() {
+      Random random = new Random(2);
+      for (int i = 0; i < ARITHMETIC_ROUNDS; i++) {
+         long n1 = randomLong(random);
+         long d1 = randomNonZero(random);
+         long n2 = randomLong(random);
+         long d2 = randomNonZero(random);
+         Fraction a = Fraction.of(n1, d1);
+         Fraction b = Fraction.of(n2, d2);
+         assertValue(n1, d1, a);
+         assertValue(n2, d2, b);
+
+         BigInteger crossA = big(n1).multiply(big(d2));
+         BigInteger crossB = big(n2).multiply(big(d1));
+         BigInteger bothDen = big(d1).multiply(big(d2));
+         assertValue(crossA.add(crossB), bothDen, a.add(b));
+         assertValue(crossA.subtract(crossB), bothDen, a.subtract(b));
+         assertValue(big(n1).multiply(big(n2)), bothDen, a.multiply(b));
+         if (n2 != 0) {
+            assertValue(crossA, big(d1).multiply(big(n2)), a.divide(b));
+         }
+      }
+   }
+
+   @Test
+   void bigValuesComeBackToLongs() {
+      Fraction big = Fraction.of(Long.MAX_VALUE).multiply(Fraction.of(Long.MAX_VALUE));
+      assertFalse(big.fitsInLong());
+      Fraction back = big.divide(Fraction.of(Long.MAX_VALUE));
+      assertTrue(back.fitsInLong());
+      assertEquals(Fraction.of(Long.MAX_VALUE), back);
+      assertEquals(Fraction.of(Long.MAX_VALUE).hashCode(), back.hashCode());
+
+      Fraction sum = Fraction.of(Long.MAX_VALUE).add(Fraction.ONE);
+      assertFalse(sum.fitsInLong());
+      assertEquals("9223372036854775808", sum.toString());
+      assertEquals(Fraction.of(Long.MAX_VALUE), sum.subtract(Fraction.ONE));
+      assertTrue(sum.subtract(Fraction.ONE).fitsInLong());
+
+      Fraction minimum = Fraction.of(Long.MIN_VALUE);
+      assertEquals(big(Long.MIN_VALUE), minimum.bigNumerator());
+      assertEquals(big(Long.MIN_VALUE).negate(), minimum.negate().bigNumerator());
+      assertEquals(Fraction.of(1, Long.MIN_VALUE).negate(), Fraction.of(BigInteger.ONE, big(Long.MIN_VALUE).negate()));
+   }
+
+   @Test
+   void chainedResultsMatchBigIntegers() {
+      Random random = new Random(5);
+      for (int chain = 0; chain < 300; chain++) {
+         Fraction value = Fraction.ZERO;
+         MutableFraction mutable = new MutableFraction();
+         BigInteger num = BigInteger.ZERO;
+         BigInteger den = BigInteger.ONE;
+         for (int step = 0; step < 20; step++) {
+            long n = randomLong(random);
+            long d = randomNonZero(random);
+            Fraction f = Fraction.of(n, d);
+            switch (random.nextInt(4)) {
+            case 0:
+               value = value.add(f);
+               mutable.add(f);
+               num = num.multiply(big(d)).add(big(n).multiply(den));
+               den = den.multiply(big(d));
+               break;
+            case 1:
+               value = value.subtract(f);
+               mutable.subtract(f);
+               num = num.multiply(big(d)).subtract(big(n).multiply(den));
+               den = den.multiply(big(d));
+               break;
+            case 2:
+               value = value.multiply(f);
+               mutable.multiply(f);
+               num = num.multiply(big(n));
+               den = den.multiply(big(d));
+               break;
+            default:
+               if (n == 0) {
+                  continue;
+               }
+               value = value.divide(f);
+               mutable.divide(f);
+               num = num.multiply(big(d));
+               den = den.multiply(big(n));
+            }
+            assertValue(num, den, value);
+            assertEquals(value, mutable.toFraction());
+            assertEquals(value.toString(), mutable.toString());
+         }
+      }
+   }
+
+   @Test
+   void divideByZeroThrows() {
+      assertThrows(ArithmeticException.class, () -> Fraction.of(1, 0));
+      assertThrows(ArithmeticException.class, () -> Fraction.ONE.divide(Fraction.ZERO));
+      Fraction big = Fraction.of(Long.MAX_VALUE).multiply(Fraction.of(Long.MAX_VALUE));
+      assertThrows(ArithmeticException.class, () -> big.divide(Fraction.ZERO));
+      assertThrows(ArithmeticException.class, () -> new MutableFraction(1, 2).divide(Fraction.ZERO));
+   }
+
+   @Test
+   void compareMatchesCrossProducts() {
+      Random random = new Random(3);
+      for (int i = 0; i < ROUNDS; i++) {
+         // any longs, including negative denominators and Long.MIN_VALUE
+         long n1 = randomLong(random);
+         long d1 = randomNonZero(random);
+         long n2 = randomLong(random);
+         long d2 = randomNonZero(random);
+         int expected = big(n1).multiply(big(d2)).subtract(big(n2).multiply(big(d1))).signum()
+               * big(d1).signum() * big(d2).signum();
+         assertEquals(expected, Integer.signum(Fraction.compare(n1, d1, n2, d2)),
+               () -> n1 + "/" + d1 + " vs " + n2 + "/" + d2);
+      }
+   }
+
+   @Test
+   void compareToMatchesBigIntegers() {
+      Random random = new Random(4);
+      for (int i = 0; i < ARITHMETIC_ROUNDS; i++) {
+         Fraction a = Fraction.of(randomLong(random), randomNonZero(random));
+         Fraction b = Fraction.of(randomLong(random), randomNonZero(random));
+         if (random.nextInt(4) == 0) {
+            // one side too big for longs
+            a = a.multiply(Fraction.of(Long.MAX_VALUE, 3));
+         }
+         int expected = a.bigNumerator().multiply(b.bigDenominator())
+               .compareTo(b.bigNumerator().multiply(a.bigDenominator()));
+         assertEquals(expected, Integer.signum(a.compareTo(b)));
+         assertEquals(-expected, Integer.signum(b.compareTo(a)));
+         if (a.fitsInLong()) {
+            assertEquals(expected, Integer.signum(new MutableFraction(a).compareTo(b)));
+         }
+      }
+   }
+
+   @Test
+   void compareAtTheEdges() {
+      assertTrue(Fraction.compare(Long.MAX_VALUE, Long.MAX_VALUE - 1, Long.MAX_VALUE - 1, Long.MAX_VALUE - 2) < 0);
+      assertTrue(Fraction.compare(Long.MIN_VALUE, 1, Long.MIN_VALUE + 1, 1) < 0);
+      assertTrue(Fraction.compare(Long.MIN_VALUE, -1, Long.MAX_VALUE, 1) > 0);
+      assertEquals(0, Fraction.compare(Long.MIN_VALUE, Long.MIN_VALUE, 1, 1));
+      assertEquals(0, Fraction.compare(Long.MAX_VALUE, -Long.MAX_VALUE, -1, 1));
+      assertEquals(0, Fraction.compare(0, Long.MIN_VALUE, 0, 1));
+      assertThrows(ArithmeticException.class, () -> Fraction.compare(1, 0, 1, 1));
+   }
+
+   // mostly values near the edges, where overflow happens, and some of
+   // every size in between
+   private static long randomLong(Random random) {
+      switch (random.nextInt(4)) {
+      case 0:
+         return EDGES[random.nextInt(EDGES.length)] + random.nextInt(3) - 1;
+      case 1:
+         return random.nextLong();
+      case 2:
+         return random.nextLong() >> random.nextInt(64);
+      default:
+         return random.nextInt(201) - 100;
+      }
+   }
+
+   private static long randomNonZero(Random random) {
+      long value;
+      do {
+         value = randomLong(random);
+      } while (value == 0);
+      return value;
+   }
+
+   private static boolean fits(BigInteger value) {
+      return value.bitLength() < 64 && value.longValue() != Long.MIN_VALUE;
+   }
+
+   private static BigInteger big(long value) {
+      return BigInteger.valueOf(value);
+   }
+
+   private static void assertValue(long num, long den, Fraction actual) {
+      assertValue(big(num), big(den), actual);
+   }
+
+   // checks the value, that it is reduced with a positive denominator, and
+   // that it only uses BigIntegers when it has to. Long.MIN_VALUE is never
+   // kept in a long, as its sign can't be flipped.
+   private static void assertValue(BigInteger num, BigInteger den, Fraction actual) {
+      BigInteger g = num.gcd(den);
+      if (den.signum() < 0) {
+         g = g.negate();
+      }
+      BigInteger expectedNum = num.divide(g);
+      BigInteger expectedDen = den.divide(g);
+      assertEquals(expectedNum, actual.bigNumerator(), () -> num + "/" + den);
+      assertEquals(expectedDen, actual.bigDenominator(), () -> num + "/" + den);
+      assertEquals(fits(expectedNum) && fits(expectedDen), actual.fitsInLong(),
+            () -> num + "/" + den);
+   }
+}
@@ -0,0 +1,87 @@
+package fraccalc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the expressions the original calculator could read against
+ * LegacyFracCalc, and the two inputs it reads differently on purpose.
+ */
+class FractionTokenizerTest {
+
+   private static final String[] OPERANDS = { "0", "3", "-3", "12", "1/2", "-1/2", "3/4", "5/6", "-7/3", "4/8",
+         "1_1/2", "-1_1/2", "2_3/4", "-2_3/4", "0_1/3", "10_5/7" };
+   private static final String[] OPERATORS = { "+", "-", "*", "/" };
+
+   @Test
+   void twoOperandsMatchTheOriginalCalculator() {
+      int compared = 0;
+      for (String left : OPERANDS) {
+         for (String operator : OPERATORS) {
+            for (String right : OPERANDS) {
+               String expression = left + " " + operator + " " + right;
+               String actual = FracCalc.evaluate(expression);
+               String expected;
+               try {
+                  expected = LegacyFracCalc.processExpression(expression);
+               } catch (ArithmeticException e) {
+                  assertEquals("ERROR: Divide by zero", actual, expression);
+                  continue;
+               }
+               // the original left some products unreduced, such as 2/6,
+               // so the values are compared rather than the text
+               assertEquals(value(expected), value(actual), expression + " gave " + actual + ", was " + expected);
+               compared++;
+            }
+         }
+      }
+      assertTrue(compared > 900);
+   }
+
+   @Test
+   void aMinusSignAppliesToTheWholeOperand() {
+      assertEquals("3/4", LegacyFracCalc.processExpression("-0_3/4 + 0"));
+      assertEquals("-3/4", FracCalc.evaluate("-0_3/4 + 0"));
+      assertEquals("-1 3/4", FracCalc.evaluate("-0_3/4 - 1"));
+      // the same as before when the whole part isn't 0
+      assertEquals(LegacyFracCalc.processExpression("-1_3/4 + 0"), FracCalc.evaluate("-1_3/4 + 0"));
+   }
+
+   @Test
+   void aSlashBeforeASpaceIsDivision() {
+      assertThrows(RuntimeException.class, () -> LegacyFracCalc.processExpression("3/ 4"));
+      assertThrows(RuntimeException.class, () -> LegacyFracCalc.processExpression("3/ 4 + 1"));
+      assertEquals("3/4", FracCalc.evaluate("3/ 4"));
+      assertEquals(FracCalc.evaluate("3 / 4 + 1"), FracCalc.evaluate("3/ 4 + 1"));
+      assertEquals("3/8", FracCalc.evaluate("3/4/ 2"));
+
+      FractionTokenizer tokens = new FractionTokenizer("3/ 4");
+      assertEquals(FractionTokenizer.Token.OPERAND, tokens.next());
+      assertEquals(Fraction.of(3), tokens.operand());
+      assertEquals(FractionTokenizer.Token.OPERATOR, tokens.next());
+      assertEquals('/', tokens.operator());
+      assertEquals(FractionTokenizer.Token.OPERAND, tokens.next());
+      assertEquals(Fraction.of(4), tokens.operand());
+      assertEquals(FractionTokenizer.Token.END, tokens.next());
+   }
+
+   // the value of a result such as 3, -1/2, 2 1/4, -2 1/4 or the original's
+   // 3 -1/-2, where the fraction takes the sign of the whole part
+   private static Fraction value(String result) {
+      String[] parts = result.split(" ");
+      Fraction whole = parts.length == 2 ? Fraction.of(Long.parseLong(parts[0])) : Fraction.ZERO;
+      String last = parts[parts.length - 1];
+      int slash = last.indexOf('/');
+      if (slash < 0) {
+         return Fraction.of(Long.parseLong(last));
+      }
+      Fraction part = Fraction.of(new BigInteger(last.substring(0, slash)), new BigInteger(last.substring(slash + 1)));
+      if (whole.signum() == 0) {
+         return part;
+      }
+      part = part.signum() < 0 ? part.negate() : part;
+      return whole.signum() < 0 ? whole.subtract(part) : whole.add(part);
+   }
+}
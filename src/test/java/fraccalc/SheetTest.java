@@ -0,0 +1,118 @@
+package fraccalc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class SheetTest {
+
+   @Test
+   void dependentsAreWorkedOutAgain() {
+      Sheet sheet = new Sheet();
+      assertEquals(1, sheet.assign("a", "1_1/2"));
+      assertEquals(1, sheet.assign("b", "a * 3/4"));
+      assertEquals(1, sheet.assign("c", "b + a"));
+      assertEquals(Fraction.of(9, 8), sheet.get("b"));
+      assertEquals(Fraction.of(21, 8), sheet.get("c"));
+
+      assertEquals(3, sheet.assign("a", "2"));
+      assertEquals(Fraction.of(3, 2), sheet.get("b"));
+      assertEquals(Fraction.of(7, 2), sheet.get("c"));
+
+      // only c uses b, so a is left alone
+      assertEquals(2, sheet.assign("b", "1/4"));
+      assertEquals(Fraction.of(9, 4), sheet.get("c"));
+      assertEquals(Fraction.of(2), sheet.get("a"));
+   }
+
+   @Test
+   void anUnchangedValueStopsTheWork() {
+      Sheet sheet = new Sheet();
+      sheet.assign("a", "1/2");
+      sheet.assign("b", "a * 0");
+      sheet.assign("c", "b + 1");
+      // b stays 0, so c isn't worked out again
+      assertEquals(2, sheet.assign("a", "7/3"));
+      assertEquals(Fraction.ONE, sheet.get("c"));
+   }
+
+   @Test
+   void aVariableCanBeUsedBeforeItIsAssigned() {
+      Sheet sheet = new Sheet();
+      sheet.assign("b", "a + 1");
+      IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> sheet.get("b"));
+      assertEquals("a is not defined", e.getMessage());
+      sheet.assign("a", "1/3");
+      assertEquals(Fraction.of(4, 3), sheet.get("b"));
+   }
+
+   @Test
+   void divideByZeroIsAnErrorUntilFixed() {
+      Sheet sheet = new Sheet();
+      sheet.assign("d", "0");
+      sheet.assign("q", "1 / d");
+      assertThrows(IllegalArgumentException.class, () -> sheet.get("q"));
+      assertThrows(ArithmeticException.class, () -> sheet.evaluate(Expression.compile("1 / d")));
+      sheet.assign("d", "4");
+      assertEquals(Fraction.of(1, 4), sheet.get("q"));
+   }
+
+   @Test
+   void cyclesAreRefused() {
+      Sheet sheet = new Sheet();
+      // a new variable that uses itself
+      assertThrows(IllegalArgumentException.class, () -> sheet.assign("x", "x + 1"));
+      assertEquals(0, sheet.size());
+
+      sheet.assign("a", "1");
+      sheet.assign("b", "a + 1");
+      sheet.assign("c", "b * 2");
+      // an existing variable that uses itself
+      assertThrows(IllegalArgumentException.class, () -> sheet.assign("a", "a * 2"));
+      // and through other variables
+      assertThrows(IllegalArgumentException.class, () -> sheet.assign("a", "c - 1"));
+      assertThrows(IllegalArgumentException.class, () -> sheet.assign("b", "c"));
+   }
+
+   @Test
+   void aFailedAssignmentChangesNothing() {
+      Sheet sheet = new Sheet();
+      sheet.assign("a", "1");
+      sheet.assign("b", "a + 1");
+      sheet.assign("c", "b * 2");
+      String before = sheet.toString();
+      int size = sheet.size();
+
+      assertThrows(IllegalArgumentException.class, () -> sheet.assign("a", "c - 1"));
+      assertThrows(IllegalArgumentException.class, () -> sheet.assign("a", "1 +"));
+      assertThrows(IllegalArgumentException.class, () -> sheet.assign("2a", "1"));
+      assertThrows(IllegalArgumentException.class, () -> sheet.assign("n", "n"));
+      assertEquals(before, sheet.toString());
+      assertEquals(size, sheet.size());
+
+      // and the counts the refused edits used are cleared, so later edits
+      // still work out everything downstream
+      assertEquals(3, sheet.assign("a", "5"));
+      assertEquals(Fraction.of(12), sheet.get("c"));
+   }
+
+   @Test
+   void longChainsDontOverflowTheStack() {
+      Sheet sheet = new Sheet();
+      sheet.assign("v0", "1");
+      for (int i = 1; i <= 20_000; i++) {
+         sheet.assign("v" + i, "v" + (i - 1) + " + 1");
+      }
+      assertEquals(20_001, sheet.assign("v0", "2"));
+      assertEquals(Fraction.of(20_002), sheet.get("v20000"));
+   }
+
+   @Test
+   void theCalculatorKeepsVariablesInTheSheet() {
+      Sheet sheet = new Sheet();
+      assertEquals("x = 1/2", FracCalc.processCommand("x = 1/2", sheet));
+      assertEquals("1", FracCalc.processCommand("x * 2", sheet));
+      assertEquals("x = 1/2 = 1/2", FracCalc.processCommand("vars", sheet));
+      assertTrue(FracCalc.processCommand("x = 1/2").startsWith("ERROR"));
+   }
+}
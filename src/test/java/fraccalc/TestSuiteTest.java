@@ -0,0 +1,97 @@
+package fraccalc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestSuiteTest {
+
+   @TempDir
+   Path dir;
+
+   @Test
+   void textToBinaryToTextGivesTheSameBytes() throws IOException, URISyntaxException {
+      Path original = Path.of(TestSuiteTest.class.getResource("tests_checkpoint1.txt").toURI());
+      TestSuite suite = TestSuite.read(original.toFile());
+      assertEquals(8, suite.testCount());
+
+      Path binary = dir.resolve("tests_checkpoint1" + TestSuite.BINARY_EXTENSION);
+      suite.writeBinary(binary);
+      TestSuite fromBinary = TestSuite.read(binary.toFile());
+      Path text = dir.resolve("tests_checkpoint1.txt");
+      assertTrue(fromBinary.writeText(text));
+
+      assertEquals(Files.readString(original).replace("\n", System.lineSeparator()), Files.readString(text));
+   }
+
+   @Test
+   void binaryKeepsThePointsAndComments() throws IOException, URISyntaxException {
+      File original = new File(TestSuiteTest.class.getResource("tests_checkpoint1.txt").toURI());
+      TestSuite text = TestSuite.read(original);
+      Path binary = dir.resolve("suite" + TestSuite.BINARY_EXTENSION);
+      text.writeBinary(binary);
+      TestSuite fromBinary = TestSuite.readBinary(binary);
+
+      assertEquals(text.entries().size(), fromBinary.entries().size());
+      for (int i = 0; i < text.entries().size(); i++) {
+         TestSuite.Entry expected = text.entries().get(i);
+         TestSuite.Entry actual = fromBinary.entries().get(i);
+         assertEquals(expected.kind, actual.kind);
+         assertEquals(expected.text, actual.text);
+         assertEquals(expected.points, actual.points);
+         assertEquals(expected.millis, actual.millis);
+      }
+   }
+
+   @Test
+   void pointsAreWrittenWithoutATrailingZero() throws IOException {
+      Path original = dir.resolve("points.txt");
+      Files.write(original, List.of("1/2 + 1/2", "1 3", "1", "1/2 * 2", "1 0.25", "1"));
+      TestSuite suite = TestSuite.read(original.toFile());
+      assertEquals(3.0, suite.entries().get(0).points);
+      assertEquals(0.25, suite.entries().get(1).points);
+      Path written = dir.resolve("written.txt");
+      assertTrue(suite.writeText(written));
+      assertEquals(Files.readAllLines(original), Files.readAllLines(written));
+   }
+
+   @Test
+   void damagedCountsAreRefusedBeforeAllocating() throws IOException {
+      byte[] magic = { 'F', 'C', 'T', '1' };
+      // more entries than there are bytes
+      assertDamaged(magic, new byte[] { 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0 });
+      // one test that claims Integer.MAX_VALUE expected lines
+      assertDamaged(magic, new byte[] { 0, 0, 0, 1, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0 });
+      // one comment with a string far longer than the file
+      assertDamaged(magic, new byte[] { 0, 0, 0, 1, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F, 'x' });
+   }
+
+   @Test
+   void everyCutShortFileIsRefused() throws IOException, URISyntaxException {
+      File original = new File(TestSuiteTest.class.getResource("tests_checkpoint1.txt").toURI());
+      Path binary = dir.resolve("whole" + TestSuite.BINARY_EXTENSION);
+      TestSuite.read(original).writeBinary(binary);
+      byte[] bytes = Files.readAllBytes(binary);
+      for (int length = 0; length < bytes.length; length++) {
+         Path cut = dir.resolve("cut" + TestSuite.BINARY_EXTENSION);
+         Files.write(cut, Arrays.copyOf(bytes, length));
+         assertThrows(IOException.class, () -> TestSuite.readBinary(cut), "cut to " + length + " bytes");
+      }
+   }
+
+   private void assertDamaged(byte[] magic, byte[] rest) throws IOException {
+      Path file = dir.resolve("damaged" + TestSuite.BINARY_EXTENSION);
+      byte[] bytes = Arrays.copyOf(magic, magic.length + rest.length);
+      System.arraycopy(rest, 0, bytes, magic.length, rest.length);
+      Files.write(file, bytes);
+      assertThrows(IOException.class, () -> TestSuite.readBinary(file));
+   }
+}
@@ -0,0 +1,132 @@
+package fraccalc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs small test files through UnitTestRunner with commands that sleep, and
+ * checks the report it prints.
+ */
+class UnitTestRunnerTest {
+
+   @TempDir
+   Path dir;
+
+   @Test
+   void aTestOverItsTimeLimitFailsAndTheRestRun() throws IOException {
+      List<String> lines = new ArrayList<>(List.of("<timeout test=100>"));
+      addTest(lines, "sleep 0");
+      addTest(lines, "sleep 10000");
+      addTest(lines, "sleep 0");
+      long start = System.nanoTime();
+      String report = run(lines, false, 1);
+      assertTrue(System.nanoTime() - start < 5_000_000_000L, "the slow command was not stopped");
+
+      String[] tests = testLines(report);
+      assertEquals(3, tests.length, report);
+      assertTrue(tests[0].endsWith("passed  (+1.0 pts)"), tests[0]);
+      assertTrue(tests[1].endsWith("failed: time limit of 100 ms ran out"), tests[1]);
+      assertTrue(tests[2].endsWith("passed  (+1.0 pts)"), tests[2]);
+      assertTrue(report.contains("SCORE: 2.0 / 3.0"), report);
+   }
+
+   @Test
+   void aSectionOverItsTimeLimitFailsWhatIsLeftOfIt() throws IOException {
+      List<String> lines = new ArrayList<>(List.of("<timeout section=1000>"));
+      // the first finishes, the second is running when the section runs out
+      // and the third hasn't started
+      addTest(lines, "sleep 200");
+      addTest(lines, "sleep 10000");
+      addTest(lines, "sleep 0");
+      lines.add("// subtotal");
+      addTest(lines, "sleep 0");
+      String report = run(lines, false, 1);
+
+      String[] tests = testLines(report);
+      assertEquals(4, tests.length, report);
+      assertTrue(tests[0].endsWith("passed  (+1.0 pts)"), tests[0]);
+      assertTrue(tests[1].endsWith("failed: section time limit of 1000 ms ran out"), tests[1]);
+      assertTrue(tests[2].endsWith("failed: section time limit of 1000 ms ran out"), tests[2]);
+      // a section limit ends with its section
+      assertTrue(tests[3].endsWith("passed  (+1.0 pts)"), tests[3]);
+      assertTrue(report.contains("Section Sub-Total: 1.0 / 3.0"), report);
+   }
+
+   @Test
+   void resultsAreReportedInFileOrder() throws IOException {
+      List<String> lines = new ArrayList<>();
+      // the early tests take longest, so on several threads the later ones
+      // finish first
+      for (int i = 0; i < 40; i++) {
+         addTest(lines, "sleep " + (40 - i) + " " + i);
+      }
+      String[] tests = testLines(run(lines, false, 4));
+      assertEquals(40, tests.length);
+      for (int i = 0; i < tests.length; i++) {
+         assertTrue(tests[i].startsWith("Running Test [sleep " + (40 - i) + " " + i + "]"), tests[i]);
+         assertTrue(tests[i].endsWith("passed  (+1.0 pts)"), tests[i]);
+      }
+   }
+
+   @Test
+   void breakingOnAFailureStopsAtTheFirstOneInTheFile() throws IOException {
+      List<String> lines = new ArrayList<>();
+      for (int i = 0; i < 40; i++) {
+         // the later failure finishes first
+         addTest(lines, i == 10 ? "fail 50" : i == 30 ? "fail 0" : "sleep 1");
+      }
+      String report = run(lines, true, 4);
+      String[] tests = testLines(report);
+      assertEquals(11, tests.length, report);
+      assertTrue(tests[10].startsWith("Running Test [fail 50]"), tests[10]);
+      assertTrue(report.contains("Set to break on fail"), report);
+   }
+
+   // a test of a command whose expected output is "ok"
+   private static void addTest(List<String> lines, String command) {
+      lines.add(command);
+      lines.add("1");
+      lines.add("ok");
+   }
+
+   // sleeps for the milliseconds after the command, and answers ok, or
+   // something else for fail
+   private static String command(String command) {
+      String[] words = command.split(" ");
+      try {
+         Thread.sleep(Long.parseLong(words[1]));
+      } catch (InterruptedException e) {
+         return "interrupted";
+      }
+      return words[0].equals("fail") ? "not ok" : "ok";
+   }
+
+   private static String[] testLines(String report) {
+      return report.lines().filter(line -> line.startsWith("Running Test")).toArray(String[]::new);
+   }
+
+   // runs the tests and returns what the runner printed
+   private String run(List<String> lines, boolean breakOnFail, int threads) throws IOException {
+      Path file = dir.resolve("tests.txt");
+      Files.write(file, lines);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      PrintStream original = System.out;
+      System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8));
+      try {
+         UnitTestRunner.runTests(file.toString(), breakOnFail, threads, UnitTestRunnerTest::command);
+      } finally {
+         System.setOut(original);
+      }
+      return out.toString(StandardCharsets.UTF_8);
+   }
+}